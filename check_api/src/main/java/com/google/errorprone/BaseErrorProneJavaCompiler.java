@@ -19,18 +19,24 @@ package com.google.errorprone;
 import static com.google.common.base.StandardSystemProperty.JAVA_SPECIFICATION_VERSION;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Iterables;
 import com.google.errorprone.RefactoringCollection.RefactoringResult;
+import com.google.errorprone.dataflow.DataFlow;
 import com.google.errorprone.scanner.ErrorProneScannerTransformer;
+import com.google.errorprone.scanner.ScannerProfiler;
 import com.google.errorprone.scanner.ScannerSupplier;
 import com.sun.tools.javac.api.JavacTaskImpl;
 import com.sun.tools.javac.api.JavacTool;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.JavacMessages;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
@@ -79,6 +85,7 @@ public class BaseErrorProneJavaCompiler implements JavaCompiler {
             javacTool.getTask(
                 out, fileManager, diagnosticListener, javacOpts, classes, compilationUnits);
     setupMessageBundle(task.getContext());
+    setupProfiler(errorProneOptions, task.getContext());
     RefactoringCollection[] refactoringCollection = {null};
     task.addTaskListener(
         createAnalyzer(errorProneOptions, task.getContext(), refactoringCollection));
@@ -95,8 +102,12 @@ public class BaseErrorProneJavaCompiler implements JavaCompiler {
 
       @Override
       public Boolean call() {
-        return wrapPotentialRefactoringCall(
-            task.call(), new PrintWriter(out, true), refactoringCollection[0]);
+        PrintWriter errOutput = new PrintWriter(out, true);
+        boolean result =
+            wrapPotentialRefactoringCall(task.call(), errOutput, refactoringCollection[0]);
+        writeProfileReport(task.getContext(), errOutput);
+        reportDataflowBailouts(task.getContext(), errOutput);
+        return result;
       }
     };
   }
@@ -196,16 +207,57 @@ public class BaseErrorProneJavaCompiler implements JavaCompiler {
     JavacMessages.instance(context).add(l -> bundle);
   }
 
+  /** Registers a {@link ScannerProfiler} if profiling was requested with {@code -XepProfile}. */
+  private static void setupProfiler(ErrorProneOptions errorProneOptions, Context context) {
+    if (errorProneOptions.profileFile().isPresent()) {
+      context.put(
+          ScannerProfiler.class,
+          new ScannerProfiler(Paths.get(errorProneOptions.profileFile().get())));
+    }
+  }
+
+  /**
+   * Writes the profiling report, if any. A report that cannot be written is only a warning, and
+   * does not fail the compilation.
+   */
+  private static void writeProfileReport(Context context, PrintWriter errOutput) {
+    ScannerProfiler profiler = context.get(ScannerProfiler.class);
+    if (profiler == null) {
+      return;
+    }
+    try {
+      profiler.writeReport();
+    } catch (IOException e) {
+      errOutput.println("warning: Failed to write Error Prone profile: " + e.getMessage());
+      errOutput.flush();
+    }
+  }
+
+  /** Warns about the methods that dataflow analyses skipped because they exceeded a limit. */
+  private static void reportDataflowBailouts(Context context, PrintWriter errOutput) {
+    ImmutableMultiset<String> bailouts = DataFlow.getBailouts(context);
+    if (bailouts.isEmpty()) {
+      return;
+    }
+    errOutput.println(
+        String.format(
+            "warning: Error Prone skipped dataflow analysis of %d methods that exceeded the "
+                + "configured limits: %s",
+            bailouts.size(), Iterables.limit(bailouts.entrySet(), 30)));
+    errOutput.flush();
+  }
+
   private ErrorProneAnalyzer createAnalyzer(
       ErrorProneOptions epOptions, Context context, RefactoringCollection[] refactoringCollection) {
     if (!epOptions.patchingOptions().doRefactor()) {
       return ErrorProneAnalyzer.createByScanningForPlugins(scannerSupplier, epOptions, context);
     }
+    int parallelism = epOptions.patchingOptions().parallelism();
     refactoringCollection[0] =
         epOptions.patchingOptions().inPlace()
-            ? RefactoringCollection.refactorInPlace()
+            ? RefactoringCollection.refactorInPlace(parallelism)
             : RefactoringCollection.refactorToPatchFile(
-                epOptions.patchingOptions().baseDirectory());
+                epOptions.patchingOptions().baseDirectory(), parallelism);
 
     // Refaster refactorer or using builtin checks
     CodeTransformer codeTransformer =
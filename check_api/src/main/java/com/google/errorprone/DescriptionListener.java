@@ -32,6 +32,13 @@ public interface DescriptionListener {
    */
   void onDescribed(Description description);
 
+  /**
+   * Called once all of the descriptions for the compilation unit this listener was created for
+   * have been reported. It is not called if analyzing the compilation unit failed, so that a
+   * partial set of descriptions is never treated as complete.
+   */
+  default void onFinished() {}
+
   /** Factory for creating DescriptionListeners while compiling each file. */
   interface Factory {
     DescriptionListener getDescriptionListener(Log log, JCCompilationUnit compilation);
@@ -22,8 +22,10 @@ import static com.google.common.base.Verify.verify;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
+import com.google.errorprone.dataflow.DataFlow;
 import com.google.errorprone.scanner.ErrorProneScannerTransformer;
 import com.google.errorprone.scanner.ScannerSupplier;
+import com.google.errorprone.util.AnnotationLookup;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.util.TaskEvent;
@@ -111,6 +113,11 @@ public class ErrorProneAnalyzer implements TaskListener {
     this.errorProneOptions = checkNotNull(errorProneOptions);
     this.context = checkNotNull(context);
     this.descriptionListenerFactory = checkNotNull(descriptionListenerFactory);
+    // Register the caches in the compilation's context, so that the SubContexts created for each
+    // compilation unit share them.
+    TypeResolutionCache.instance(context);
+    AnnotationLookup.instance(context);
+    DataFlow.registerBailouts(context);
   }
 
   @Override
@@ -127,23 +134,28 @@ public class ErrorProneAnalyzer implements TaskListener {
     }
     // Assert that the event is unique and scan the current tree.
     verify(seen.add(path.getLeaf()), "Duplicate FLOW event for: %s", taskEvent.getTypeElement());
+    JCCompilationUnit compilation = (JCCompilationUnit) path.getCompilationUnit();
+    TreePath toScan;
+    if (path.getLeaf().getKind() == Tree.Kind.COMPILATION_UNIT) {
+      // We only get TaskEvents for compilation units if they contain no package declarations
+      // (e.g. package-info.java files).  In this case it's safe to analyze the
+      // CompilationUnitTree immediately.
+      toScan = path;
+    } else if (finishedCompilation(path.getCompilationUnit())) {
+      // Otherwise this TaskEvent is for a ClassTree, and we can scan the whole
+      // CompilationUnitTree once we've seen all the enclosed classes.
+      toScan = new TreePath(compilation);
+    } else {
+      return;
+    }
     Context subContext = new SubContext(context);
     subContext.put(ErrorProneOptions.class, errorProneOptions);
     Log log = Log.instance(context);
-    JCCompilationUnit compilation = (JCCompilationUnit) path.getCompilationUnit();
     DescriptionListener descriptionListener =
         descriptionListenerFactory.getDescriptionListener(log, compilation);
     try {
-      if (path.getLeaf().getKind() == Tree.Kind.COMPILATION_UNIT) {
-        // We only get TaskEvents for compilation units if they contain no package declarations
-        // (e.g. package-info.java files).  In this case it's safe to analyze the
-        // CompilationUnitTree immediately.
-        transformer.get().apply(path, subContext, descriptionListener);
-      } else if (finishedCompilation(path.getCompilationUnit())) {
-        // Otherwise this TaskEvent is for a ClassTree, and we can scan the whole
-        // CompilationUnitTree once we've seen all the enclosed classes.
-        transformer.get().apply(new TreePath(compilation), subContext, descriptionListener);
-      }
+      transformer.get().apply(toScan, subContext, descriptionListener);
+      descriptionListener.onFinished();
     } catch (ErrorProneError e) {
       e.logFatalError(log);
       // let the exception propagate to javac's main, where it will cause the compilation to
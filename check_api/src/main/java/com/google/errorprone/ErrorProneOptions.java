@@ -47,12 +47,17 @@ public class ErrorProneOptions {
   private static final String CUSTOM_ENABLEMENT_PREFIX = "-Xep:";
   private static final String PATCH_CHECKS_PREFIX = "-XepPatchChecks:";
   private static final String PATCH_OUTPUT_LOCATION = "-XepPatchLocation:";
+  private static final String PATCH_PARALLELISM_PREFIX = "-XepPatchParallelism:";
   private static final String ERRORS_AS_WARNINGS_FLAG = "-XepAllErrorsAsWarnings";
   private static final String ENABLE_ALL_CHECKS = "-XepAllDisabledChecksAsWarnings";
   private static final String DISABLE_ALL_CHECKS = "-XepDisableAllChecks";
   private static final String IGNORE_UNKNOWN_CHECKS_FLAG = "-XepIgnoreUnknownCheckNames";
   private static final String DISABLE_WARNINGS_IN_GENERATED_CODE_FLAG =
       "-XepDisableWarningsInGeneratedCode";
+  private static final String PROFILE_PREFIX = "-XepProfile:";
+  private static final String DATAFLOW_MAX_METHOD_SIZE_PREFIX = "-XepDataflowMaxMethodSize:";
+  private static final String DATAFLOW_MAX_COMPILATION_UNIT_SIZE_PREFIX =
+      "-XepDataflowMaxCompilationUnitSize:";
 
   /**
    * see {@link javax.tools.OptionChecker#isSupportedOption(String)}
@@ -62,6 +67,10 @@ public class ErrorProneOptions {
         option.startsWith(CUSTOM_ENABLEMENT_PREFIX)
             || option.startsWith(PATCH_OUTPUT_LOCATION)
             || option.startsWith(PATCH_CHECKS_PREFIX)
+            || option.startsWith(PATCH_PARALLELISM_PREFIX)
+            || option.startsWith(PROFILE_PREFIX)
+            || option.startsWith(DATAFLOW_MAX_METHOD_SIZE_PREFIX)
+            || option.startsWith(DATAFLOW_MAX_COMPILATION_UNIT_SIZE_PREFIX)
             || option.equals(IGNORE_UNKNOWN_CHECKS_FLAG)
             || option.equals(DISABLE_WARNINGS_IN_GENERATED_CODE_FLAG)
             || option.equals(ERRORS_AS_WARNINGS_FLAG)
@@ -103,11 +112,15 @@ public class ErrorProneOptions {
 
     abstract Optional<Supplier<CodeTransformer>> customRefactorer();
 
+    /** The number of files to apply fixes to concurrently. */
+    abstract int parallelism();
+
     static Builder builder() {
       return new AutoValue_ErrorProneOptions_PatchingOptions.Builder()
           .baseDirectory("")
           .inPlace(false)
-          .namedCheckers(Collections.emptySet());
+          .namedCheckers(Collections.emptySet())
+          .parallelism(Runtime.getRuntime().availableProcessors());
     }
 
     @AutoValue.Builder
@@ -121,6 +134,8 @@ public class ErrorProneOptions {
 
       abstract Builder customRefactorer(Supplier<CodeTransformer> refactorer);
 
+      abstract Builder parallelism(int parallelism);
+
       abstract PatchingOptions autoBuild();
 
       final PatchingOptions build() {
@@ -147,6 +162,9 @@ public class ErrorProneOptions {
   private final boolean enableAllChecks;
   private final boolean disableAllChecks;
   private final PatchingOptions patchingOptions;
+  private final Optional<String> profileFile;
+  private final int dataflowMaxMethodSize;
+  private final int dataflowMaxCompilationUnitSize;
 
   private ErrorProneOptions(
       ImmutableMap<String, Severity> severityMap,
@@ -156,7 +174,10 @@ public class ErrorProneOptions {
       boolean dropErrorsToWarnings,
       boolean enableAllChecks,
       boolean disableAllChecks,
-      PatchingOptions patchingOptions) {
+      PatchingOptions patchingOptions,
+      Optional<String> profileFile,
+      int dataflowMaxMethodSize,
+      int dataflowMaxCompilationUnitSize) {
     this.severityMap = severityMap;
     this.remainingArgs = remainingArgs;
     this.ignoreUnknownChecks = ignoreUnknownChecks;
@@ -165,6 +186,9 @@ public class ErrorProneOptions {
     this.enableAllChecks = enableAllChecks;
     this.disableAllChecks = disableAllChecks;
     this.patchingOptions = patchingOptions;
+    this.profileFile = profileFile;
+    this.dataflowMaxMethodSize = dataflowMaxMethodSize;
+    this.dataflowMaxCompilationUnitSize = dataflowMaxCompilationUnitSize;
   }
 
   public String[] getRemainingArgs() {
@@ -191,12 +215,40 @@ public class ErrorProneOptions {
     return patchingOptions;
   }
 
+  /**
+   * The file that per-check profiling data should be written to at the end of the compilation, if
+   * profiling was requested with {@code -XepProfile:<file>}.
+   */
+  public Optional<String> profileFile() {
+    return profileFile;
+  }
+
+  /**
+   * The size, in tree nodes, of the largest method or lambda that dataflow analyses are run on.
+   * Set with {@code -XepDataflowMaxMethodSize:<n>}; unlimited by default.
+   */
+  public int dataflowMaxMethodSize() {
+    return dataflowMaxMethodSize;
+  }
+
+  /**
+   * The total size, in tree nodes, of the methods and lambdas that dataflow analyses are run on in
+   * a single compilation unit. Set with {@code -XepDataflowMaxCompilationUnitSize:<n>}; unlimited
+   * by default.
+   */
+  public int dataflowMaxCompilationUnitSize() {
+    return dataflowMaxCompilationUnitSize;
+  }
+
   private static class Builder {
     private boolean ignoreUnknownChecks = false;
     private boolean disableWarningsInGeneratedCode = false;
     private boolean dropErrorsToWarnings = false;
     private boolean enableAllChecks = false;
     private boolean disableAllChecks = false;
+    private Optional<String> profileFile = Optional.absent();
+    private int dataflowMaxMethodSize = Integer.MAX_VALUE;
+    private int dataflowMaxCompilationUnitSize = Integer.MAX_VALUE;
     private Map<String, Severity> severityMap = new HashMap<>();
     private final PatchingOptions.Builder patchingOptionsBuilder = PatchingOptions.builder();
 
@@ -231,6 +283,18 @@ public class ErrorProneOptions {
       this.disableAllChecks = disableAllChecks;
     }
 
+    public void setProfileFile(String profileFile) {
+      this.profileFile = Optional.of(profileFile);
+    }
+
+    public void setDataflowMaxMethodSize(int dataflowMaxMethodSize) {
+      this.dataflowMaxMethodSize = dataflowMaxMethodSize;
+    }
+
+    public void setDataflowMaxCompilationUnitSize(int dataflowMaxCompilationUnitSize) {
+      this.dataflowMaxCompilationUnitSize = dataflowMaxCompilationUnitSize;
+    }
+
     public PatchingOptions.Builder patchingOptionsBuilder() {
       return patchingOptionsBuilder;
     }
@@ -244,7 +308,10 @@ public class ErrorProneOptions {
           dropErrorsToWarnings,
           enableAllChecks,
           disableAllChecks,
-          patchingOptionsBuilder.build());
+          patchingOptionsBuilder.build(),
+          profileFile,
+          dataflowMaxMethodSize,
+          dataflowMaxCompilationUnitSize);
     }
   }
 
@@ -304,6 +371,24 @@ public class ErrorProneOptions {
               }
               builder.patchingOptionsBuilder().baseDirectory(remaining);
             }
+          } else if (arg.startsWith(PATCH_PARALLELISM_PREFIX)) {
+            builder
+                .patchingOptionsBuilder()
+                .parallelism(
+                    parsePositiveInt(arg, arg.substring(PATCH_PARALLELISM_PREFIX.length())));
+          } else if (arg.startsWith(PROFILE_PREFIX)) {
+            String remaining = arg.substring(PROFILE_PREFIX.length());
+            if (remaining.isEmpty()) {
+              throw new InvalidCommandLineOptionException("invalid flag: " + arg);
+            }
+            builder.setProfileFile(remaining);
+          } else if (arg.startsWith(DATAFLOW_MAX_METHOD_SIZE_PREFIX)) {
+            builder.setDataflowMaxMethodSize(
+                parsePositiveInt(arg, arg.substring(DATAFLOW_MAX_METHOD_SIZE_PREFIX.length())));
+          } else if (arg.startsWith(DATAFLOW_MAX_COMPILATION_UNIT_SIZE_PREFIX)) {
+            builder.setDataflowMaxCompilationUnitSize(
+                parsePositiveInt(
+                    arg, arg.substring(DATAFLOW_MAX_COMPILATION_UNIT_SIZE_PREFIX.length())));
           } else if (arg.startsWith(PATCH_CHECKS_PREFIX)) {
             String remaining = arg.substring(PATCH_CHECKS_PREFIX.length());
             if (remaining.startsWith("refaster:")) {
@@ -334,6 +419,20 @@ public class ErrorProneOptions {
     return builder.build(outputArgs.build());
   }
 
+  /** Parses the value of a flag that must be a positive integer, such as a size limit. */
+  private static int parsePositiveInt(String arg, String value) {
+    int limit;
+    try {
+      limit = Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new InvalidCommandLineOptionException("invalid flag: " + arg);
+    }
+    if (limit <= 0) {
+      throw new InvalidCommandLineOptionException("invalid flag: " + arg);
+    }
+    return limit;
+  }
+
   private static void parseCustomFlagIntoOptionsBuilder(Builder builder, String arg) {
     // Strip prefix
     String remaining = arg.substring(CUSTOM_ENABLEMENT_PREFIX.length());
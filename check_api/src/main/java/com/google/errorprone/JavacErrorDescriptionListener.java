@@ -58,7 +58,9 @@ public class JavacErrorDescriptionListener implements DescriptionListener {
     checkNotNull(endPositions);
     try {
       CharSequence sourceFileContent = sourceFile.getCharContent(true);
-      fixToAppliedFix = fix -> AppliedFix.fromSource(sourceFileContent, endPositions).apply(fix);
+      // share the applier, and its line offsets, between all of the fixes in this file
+      AppliedFix.Applier applier = AppliedFix.fromSource(sourceFileContent, endPositions);
+      fixToAppliedFix = applier::apply;
     } catch (IOException e) {
       throw new IOError(e);
     }
@@ -16,42 +16,34 @@
 
 package com.google.errorprone;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 import com.google.auto.value.AutoValue;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Multimap;
 import com.google.errorprone.apply.DescriptionBasedDiff;
 import com.google.errorprone.apply.DiffApplier;
 import com.google.errorprone.apply.FileDestination;
-import com.google.errorprone.apply.FileSource;
 import com.google.errorprone.apply.FsFileDestination;
 import com.google.errorprone.apply.FsFileSource;
 import com.google.errorprone.apply.PatchFileDestination;
 import com.google.errorprone.matchers.Description;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.util.Log;
-import java.io.IOException;
-import java.net.URI;
 import java.nio.file.FileSystems;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-/** A container of fixes that have been collected during a single compilation phase. */
+/**
+ * A container of fixes that have been collected during a single compilation phase.
+ *
+ * <p>The fixes for each compilation unit are handed to a {@link DiffApplier} as soon as the unit
+ * has been analyzed, so the diffs, and the trees they refer to, are only kept until they have been
+ * applied rather than until the end of the compilation.
+ */
 class RefactoringCollection implements DescriptionListener.Factory {
-  private final Multimap<URI, DelegatingDescriptionListener> foundSources = HashMultimap.create();
   private final AtomicBoolean foundMatches = new AtomicBoolean(false);
-  private final Path rootPath;
-  private final FileDestination fileDestination;
   private final Callable<RefactoringResult> postProcess;
   private final DescriptionListener.Factory descriptionsFactory;
+  private final DiffApplier diffApplier;
 
   @AutoValue
   abstract static class RefactoringResult {
@@ -69,11 +61,12 @@ class RefactoringCollection implements DescriptionListener.Factory {
     CHANGED,
   }
 
-  static RefactoringCollection refactorInPlace() {
+  static RefactoringCollection refactorInPlace(int parallelism) {
     Path rootPath = buildRootPath();
     return new RefactoringCollection(
         rootPath,
         new FsFileDestination(rootPath),
+        parallelism,
         () ->
             RefactoringResult.create(
                 "Refactoring changes were successfully applied, please check the refactored code "
@@ -81,34 +74,32 @@ class RefactoringCollection implements DescriptionListener.Factory {
                 RefactoringResultType.CHANGED));
   }
 
-  static RefactoringCollection refactorToPatchFile(String baseDirectory) {
+  static RefactoringCollection refactorToPatchFile(String baseDirectory, int parallelism) {
     Path rootPath = buildRootPath();
     Path baseDir = rootPath.resolve(baseDirectory);
     Path patchFilePath = baseDir.resolve("error-prone.patch");
 
-    PatchFileDestination patchFileDestination = new PatchFileDestination(baseDir, rootPath);
+    PatchFileDestination patchFileDestination =
+        new PatchFileDestination(baseDir, rootPath, patchFilePath);
     Callable<RefactoringResult> postProcess =
-        () -> {
-          try {
-            writePatchFile(patchFileDestination, patchFilePath);
-            return RefactoringResult.create(
+        () ->
+            RefactoringResult.create(
                 "Changes were written to "
                     + patchFilePath
                     + ". Please inspect the file and apply with: patch -p0 -u -i error-prone.patch",
                 RefactoringResultType.CHANGED);
-          } catch (IOException e) {
-            throw new RuntimeException("Failed to emit patch file!", e);
-          }
-        };
-    return new RefactoringCollection(rootPath, patchFileDestination, postProcess);
+    return new RefactoringCollection(rootPath, patchFileDestination, parallelism, postProcess);
   }
 
   private RefactoringCollection(
-      Path rootPath, FileDestination fileDestination, Callable<RefactoringResult> postProcess) {
-    this.rootPath = rootPath;
-    this.fileDestination = fileDestination;
+      Path rootPath,
+      FileDestination fileDestination,
+      int parallelism,
+      Callable<RefactoringResult> postProcess) {
     this.postProcess = postProcess;
     this.descriptionsFactory = JavacErrorDescriptionListener.providerForRefactoring();
+    this.diffApplier = new DiffApplier(parallelism, new FsFileSource(rootPath), fileDestination);
+    diffApplier.startAsync().awaitRunning();
   }
 
   private static Path buildRootPath() {
@@ -121,52 +112,21 @@ class RefactoringCollection implements DescriptionListener.Factory {
 
   @Override
   public DescriptionListener getDescriptionListener(Log log, JCCompilationUnit compilation) {
-    URI sourceFile = compilation.getSourceFile().toUri();
-
-    DelegatingDescriptionListener delegate =
-        new DelegatingDescriptionListener(
-            descriptionsFactory.getDescriptionListener(log, compilation),
-            DescriptionBasedDiff.createIgnoringOverlaps(compilation));
-    foundSources.put(sourceFile, delegate);
-    return delegate;
+    return new DelegatingDescriptionListener(
+        descriptionsFactory.getDescriptionListener(log, compilation),
+        DescriptionBasedDiff.createIgnoringOverlaps(compilation));
   }
 
   RefactoringResult applyChanges() throws Exception {
+    // fails if applying any of the diffs threw an unexpected exception
+    diffApplier.stopAsync().awaitTerminated();
+
     if (!foundMatches.get()) {
       return RefactoringResult.create("", RefactoringResultType.NO_CHANGES);
     }
-
-    doApplyProcess(fileDestination, new FsFileSource(rootPath));
     return postProcess.call();
   }
 
-  private static void writePatchFile(PatchFileDestination fileDestination, Path patchFilePatch)
-      throws IOException {
-    String patchFile = fileDestination.patchFile();
-    if (!patchFile.isEmpty()) {
-      Files.write(patchFilePatch, patchFile.getBytes(UTF_8));
-    }
-  }
-
-  private void doApplyProcess(FileDestination fileDestination, FileSource fileSource) {
-    DiffApplier diffApplier = new DiffApplier(4, fileSource, fileDestination);
-    diffApplier.startAsync().awaitRunning();
-
-    List<Future<?>> futures = new ArrayList<>();
-    for (DelegatingDescriptionListener listener : foundSources.values()) {
-      futures.add(diffApplier.put(listener.base));
-    }
-    diffApplier.stopAsync().awaitTerminated();
-
-    try {
-      for (Future<?> future : futures) {
-        future.get();
-      }
-    } catch (InterruptedException | ExecutionException e) {
-      throw new RuntimeException(e);
-    }
-  }
-
   private final class DelegatingDescriptionListener implements DescriptionListener {
     final DescriptionBasedDiff base;
     final DescriptionListener listener;
@@ -182,5 +142,15 @@ class RefactoringCollection implements DescriptionListener.Factory {
       listener.onDescribed(description);
       base.onDescribed(description);
     }
+
+    @Override
+    public void onFinished() {
+      listener.onFinished();
+      // read what the diff needs from the trees now, while javac is not modifying them
+      base.onFinished();
+      if (!base.isEmpty()) {
+        diffApplier.put(base);
+      }
+    }
   }
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.CompletionFailure;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves types from their binary names, caching the resolved types for the lifetime of a javac
+ * {@link Context}.
+ *
+ * <p>Names that could not be resolved are only remembered until the next compilation unit is
+ * entered, since whether they can be resolved depends on which compilation units have been
+ * completed so far.
+ *
+ * <p>Every {@link VisitorState} created for the compilation units of a compilation shares the
+ * cache of the compilation's {@link Context}. If the cache is first requested through a {@link
+ * SubContext}, it is only shared by the users of that {@link SubContext}.
+ */
+public final class TypeResolutionCache {
+
+  private static final Context.Key<TypeResolutionCache> TYPE_RESOLUTION_CACHE_KEY =
+      new Context.Key<>();
+
+  private final Context context;
+  // resolving symbols in javac is not thread-safe, so neither is the cache
+  private final Map<String, Type> types = new HashMap<>();
+  // the names that could not be resolved in the current compilation unit
+  private final Set<String> unresolved = new HashSet<>();
+  private long hitCount;
+  private long negativeHitCount;
+  private long missCount;
+
+  /**
+   * Retrieve an instance of {@link TypeResolutionCache} from the {@code context}. If there is no
+   * {@link TypeResolutionCache} currently in the {@code context}, create one, insert it, and return
+   * it.
+   */
+  public static TypeResolutionCache instance(Context context) {
+    TypeResolutionCache instance = context.get(TYPE_RESOLUTION_CACHE_KEY);
+    if (instance == null) {
+      instance = new TypeResolutionCache(context);
+      context.put(TYPE_RESOLUTION_CACHE_KEY, instance);
+    }
+    return instance;
+  }
+
+  private TypeResolutionCache(Context context) {
+    this.context = context;
+  }
+
+  /**
+   * Returns the type with the given binary name or primitive type name, or null if it cannot be
+   * found.
+   *
+   * @see VisitorState#getTypeFromString
+   */
+  public Type getType(String typeStr) {
+    validateTypeStr(typeStr);
+    Type type = types.get(typeStr);
+    if (type != null) {
+      hitCount++;
+      return type;
+    }
+    if (unresolved.contains(typeStr)) {
+      negativeHitCount++;
+      return null;
+    }
+    missCount++;
+    type = resolveType(typeStr);
+    if (type != null) {
+      types.put(typeStr, type);
+    } else {
+      unresolved.add(typeStr);
+    }
+    return type;
+  }
+
+  /** Forgets the names that could not be resolved, before a new compilation unit is analyzed. */
+  public void enterCompilationUnit() {
+    unresolved.clear();
+  }
+
+  /** The number of lookups that returned a cached type. */
+  public long hitCount() {
+    return hitCount;
+  }
+
+  /**
+   * The number of lookups of a name that could not be resolved earlier in the same compilation
+   * unit.
+   */
+  public long negativeHitCount() {
+    return negativeHitCount;
+  }
+
+  /** The number of lookups that had to resolve the name. */
+  public long missCount() {
+    return missCount;
+  }
+
+  private Type resolveType(String typeStr) {
+    Symtab symtab = Symtab.instance(context);
+    if (isPrimitiveType(typeStr)) {
+      return getPrimitiveType(symtab, typeStr);
+    }
+    Name typeName = Names.instance(context).fromString(typeStr);
+    try {
+      ClassSymbol typeSymbol = symtab.classes.get(typeName);
+      if (typeSymbol == null) {
+        JavaCompiler compiler = JavaCompiler.instance(context);
+        Symbol sym = compiler.resolveIdent(typeStr);
+        if (!(sym instanceof ClassSymbol)) {
+          return null;
+        }
+        typeSymbol = (ClassSymbol) sym;
+      }
+      Type type = typeSymbol.asType();
+      // Throws CompletionFailure if the source/class file for this type is not available.
+      // This is hacky but the best way I can think of to handle this case.
+      type.complete();
+      if (type.isErroneous()) {
+        return null;
+      }
+      return type;
+    } catch (CompletionFailure failure) {
+      return null;
+    }
+  }
+
+  /**
+   * Validates a type string, ensuring it is not generic and not an array type.
+   */
+  private static void validateTypeStr(String typeStr) {
+    if (typeStr.contains("[") || typeStr.contains("]")) {
+      throw new IllegalArgumentException("Cannot convert array types, please build them using "
+          + "getType()");
+    }
+    if (typeStr.contains("<") || typeStr.contains(">")) {
+      throw new IllegalArgumentException("Cannot covnert generic types, please build them using "
+          + "getType()");
+    }
+  }
+
+  /**
+   * Given a string that represents a primitive type (e.g., "int"), return the corresponding Type.
+   */
+  private static Type getPrimitiveType(Symtab symtab, String typeStr) {
+    if (typeStr.equals("byte")) {
+      return symtab.byteType;
+    } else if (typeStr.equals("short")) {
+      return symtab.shortType;
+    } else if (typeStr.equals("int")) {
+      return symtab.intType;
+    } else if (typeStr.equals("long")) {
+      return symtab.longType;
+    } else if (typeStr.equals("float")) {
+      return symtab.floatType;
+    } else if (typeStr.equals("double")) {
+      return symtab.doubleType;
+    } else if (typeStr.equals("boolean")) {
+      return symtab.booleanType;
+    } else if (typeStr.equals("char")) {
+      return symtab.charType;
+    } else {
+      throw new IllegalStateException("Type string " + typeStr + " expected to be primitive");
+    }
+  }
+
+  private static boolean isPrimitiveType(String typeStr) {
+    return typeStr.equals("byte") || typeStr.equals("short") || typeStr.equals("int") ||
+        typeStr.equals("long") || typeStr.equals("float") || typeStr.equals("double") ||
+        typeStr.equals("boolean") || typeStr.equals("char");
+  }
+}
@@ -16,15 +16,13 @@
 
 package com.google.errorprone;
 
-import com.google.common.base.Optional;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.dataflow.nullnesspropagation.NullnessAnalysis;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.util.ErrorProneToken;
 import com.google.errorprone.util.ErrorProneTokens;
+import com.google.errorprone.util.InvocationFacts;
+import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.util.TreePath;
 import com.sun.tools.javac.code.Symbol;
@@ -35,7 +33,6 @@ import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Type.ArrayType;
 import com.sun.tools.javac.code.Type.ClassType;
 import com.sun.tools.javac.code.Types;
-import com.sun.tools.javac.main.JavaCompiler;
 import com.sun.tools.javac.parser.Tokens.Token;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
@@ -48,7 +45,6 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
 
 
 /**
@@ -56,12 +52,35 @@ import java.util.concurrent.ExecutionException;
  */
 public class VisitorState {
 
-  private final DescriptionListener descriptionListener;
+  /**
+   * The state that does not depend on the current path, which is shared by every {@link
+   * VisitorState} derived by {@link #withPath}. Keeping it in a separate object means that the
+   * per-node states created while scanning are as small as possible.
+   */
+  private static final class SharedState {
+    final DescriptionListener descriptionListener;
+    final Map<String, SeverityLevel> severityMap;
+    final ErrorProneOptions errorProneOptions;
+    final TypeResolutionCache typeCache;
+
+    SharedState(
+        DescriptionListener descriptionListener,
+        Map<String, SeverityLevel> severityMap,
+        ErrorProneOptions errorProneOptions,
+        TypeResolutionCache typeCache) {
+      this.descriptionListener = descriptionListener;
+      this.severityMap = severityMap;
+      this.errorProneOptions = errorProneOptions;
+      this.typeCache = typeCache;
+    }
+  }
+
   public final Context context;
   private final TreePath path;
-  private final Map<String, SeverityLevel> severityMap;
-  private final ErrorProneOptions errorProneOptions;
-  private final LoadingCache<String, Optional<Type>> typeCache;
+  private final SharedState sharedState;
+  // Facts derived from the leaf of the path, shared by all checkers that visit it. Lazily
+  // initialized; a new VisitorState is created for each node, so this never goes stale.
+  private InvocationFacts leafInvocationFacts;
 
   // The default no-op implementation of DescriptionListener. We use this instead of null so callers
   // of getDescriptionListener() don't have to do null-checking.
@@ -86,46 +105,47 @@ public class VisitorState {
       DescriptionListener listener,
       Map<String, SeverityLevel> severityMap,
       ErrorProneOptions errorProneOptions) {
-    this(context, null, listener, severityMap, errorProneOptions, null);
+    this.context = context;
+    this.path = null;
+    this.sharedState =
+        new SharedState(
+            listener,
+            severityMap,
+            errorProneOptions,
+            TypeResolutionCache.instance(context));
   }
 
-  private VisitorState(
-      Context context,
-      TreePath path,
-      DescriptionListener descriptionListener,
-      Map<String, SeverityLevel> severityMap,
-      ErrorProneOptions errorProneOptions,
-      LoadingCache<String, Optional<Type>> typeCache) {
+  private VisitorState(Context context, TreePath path, SharedState sharedState) {
     this.context = context;
     this.path = path;
-    this.descriptionListener = descriptionListener;
-    this.severityMap = severityMap;
-    this.errorProneOptions = errorProneOptions;
-    if (typeCache != null) {
-      this.typeCache = typeCache;
-    } else {
-      this.typeCache =
-          CacheBuilder.newBuilder()
-              .concurrencyLevel(1) // resolving symbols in javac is not is not thread-safe
-              .build(
-                  new CacheLoader<String, Optional<Type>>() {
-                    @Override
-                    public Optional<Type> load(String key) throws Exception {
-                      return Optional.fromNullable(getTypeFromStringInternal(key));
-                    }
-                  });
-    }
+    this.sharedState = sharedState;
   }
 
   public VisitorState withPath(TreePath path) {
-    return new VisitorState(
-        context, path, descriptionListener, severityMap, errorProneOptions, typeCache);
+    return new VisitorState(context, path, sharedState);
   }
 
   public TreePath getPath() {
     return path;
   }
 
+  /**
+   * Returns facts derived from the given method invocation, constructor invocation or method
+   * select expression, such as its symbol and receiver type.
+   *
+   * <p>If {@code tree} is the leaf of the current path, the facts are computed at most once and
+   * shared by all checkers that visit it.
+   */
+  public InvocationFacts getInvocationFacts(ExpressionTree tree) {
+    if (path == null || path.getLeaf() != tree) {
+      return new InvocationFacts(tree);
+    }
+    if (leafInvocationFacts == null) {
+      leafInvocationFacts = new InvocationFacts(tree);
+    }
+    return leafInvocationFacts;
+  }
+
   public TreeMaker getTreeMaker() {
     return TreeMaker.instance(context);
   }
@@ -143,7 +163,7 @@ public class VisitorState {
   }
 
   public ErrorProneOptions errorProneOptions() {
-    return errorProneOptions;
+    return sharedState.errorProneOptions;
   }
 
   public void reportMatch(Description description) {
@@ -152,11 +172,11 @@ public class VisitorState {
     // Instead, there could be another method on the listener that took a description and a
     // (separate) SeverityLevel. Adding the method to the interface would require updating the
     // existing implementations, though. Wait for default methods?
-    SeverityLevel override = severityMap.get(description.checkName);
+    SeverityLevel override = sharedState.severityMap.get(description.checkName);
     if (override != null) {
       description = description.applySeverityOverride(override);
     }
-    descriptionListener.onDescribed(description);
+    sharedState.descriptionListener.onDescribed(description);
   }
 
   public Name getName(String nameStr) {
@@ -175,40 +195,7 @@ public class VisitorState {
    * @return the {@link Type}, or null if it cannot be found
    */
   public Type getTypeFromString(String typeStr) {
-    try {
-      return typeCache.get(typeStr).orNull();
-    } catch (ExecutionException e) {
-      return null;
-    }
-  }
-
-  private Type getTypeFromStringInternal(String typeStr) {
-    validateTypeStr(typeStr);
-    if (isPrimitiveType(typeStr)) {
-      return getPrimitiveType(typeStr);
-    }
-    Name typeName = getName(typeStr);
-    try {
-      ClassSymbol typeSymbol = getSymtab().classes.get(typeName);
-      if (typeSymbol == null) {
-        JavaCompiler compiler = JavaCompiler.instance(context);
-        Symbol sym = compiler.resolveIdent(typeStr);
-        if (!(sym instanceof ClassSymbol)) {
-          return null;
-        }
-        typeSymbol = (ClassSymbol) sym;
-      }
-      Type type = typeSymbol.asType();
-      // Throws CompletionFailure if the source/class file for this type is not available.
-      // This is hacky but the best way I can think of to handle this case.
-      type.complete();
-      if (type.isErroneous()) {
-        return null;
-      }
-      return type;
-    } catch (CompletionFailure failure) {
-      return null;
-    }
+    return sharedState.typeCache.getType(typeStr);
   }
 
   /**
@@ -339,51 +326,6 @@ public class VisitorState {
     return ((JCTree) node).getEndPosition(compilationUnit.endPositions);
   }
 
-  /**
-   * Validates a type string, ensuring it is not generic and not an array type.
-   */
-  private static void validateTypeStr(String typeStr) {
-    if (typeStr.contains("[") || typeStr.contains("]")) {
-      throw new IllegalArgumentException("Cannot convert array types, please build them using "
-          + "getType()");
-    }
-    if (typeStr.contains("<") || typeStr.contains(">")) {
-      throw new IllegalArgumentException("Cannot covnert generic types, please build them using "
-          + "getType()");
-    }
-  }
-
-  /**
-   * Given a string that represents a primitive type (e.g., "int"), return the corresponding Type.
-   */
-  private Type getPrimitiveType(String typeStr) {
-    if (typeStr.equals("byte")) {
-      return getSymtab().byteType;
-    } else if (typeStr.equals("short")) {
-      return getSymtab().shortType;
-    } else if (typeStr.equals("int")) {
-      return getSymtab().intType;
-    } else if (typeStr.equals("long")) {
-      return getSymtab().longType;
-    } else if (typeStr.equals("float")) {
-      return getSymtab().floatType;
-    } else if (typeStr.equals("double")) {
-      return getSymtab().doubleType;
-    } else if (typeStr.equals("boolean")) {
-      return getSymtab().booleanType;
-    } else if (typeStr.equals("char")) {
-      return getSymtab().charType;
-    } else {
-      throw new IllegalStateException("Type string " + typeStr + " expected to be primitive");
-    }
-  }
-
-  private static boolean isPrimitiveType(String typeStr) {
-    return typeStr.equals("byte") || typeStr.equals("short") || typeStr.equals("int") ||
-        typeStr.equals("long") || typeStr.equals("float") || typeStr.equals("double") ||
-        typeStr.equals("boolean") || typeStr.equals("char");
-  }
-
   /** Returns true if the compilation is targeting Android. */
   public boolean isAndroidCompatible() {
     return Options.instance(context).getBoolean("androidCompatible");
@@ -17,6 +17,7 @@
 package com.google.errorprone.apply;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import com.google.errorprone.DescriptionListener;
 import com.google.errorprone.fixes.Fix;
@@ -27,6 +28,7 @@ import com.sun.tools.javac.tree.EndPosTable;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Implementation of a {@link Diff} that performs the modifications that are passed to its
@@ -40,11 +42,14 @@ public final class DescriptionBasedDiff implements DescriptionListener, Diff {
 
   private final String sourcePath;
   private final boolean ignoreOverlappingFixes;
-  private final JCCompilationUnit compilationUnit;
   private final Set<String> importsToAdd;
   private final Set<String> importsToRemove;
-  private final EndPosTable endPositions;
   private final Replacements replacements = new Replacements();
+  // the compilation unit and its end positions, until onFinished
+  @Nullable private JCCompilationUnit compilationUnit;
+  @Nullable private EndPosTable endPositions;
+  // the rewritten import statements, computed by onFinished if the imports changed
+  @Nullable private Replacement importReplacement;
 
   public static DescriptionBasedDiff create(JCCompilationUnit compilationUnit) {
     return new DescriptionBasedDiff(compilationUnit, false);
@@ -81,6 +86,7 @@ public final class DescriptionBasedDiff implements DescriptionListener, Diff {
   }
 
   public void handleFix(Fix fix) {
+    checkState(compilationUnit != null, "fix handled after onFinished: %s", fix);
     importsToAdd.addAll(fix.getImportsToAdd());
     importsToRemove.addAll(fix.getImportsToRemove());
     for (Replacement replacement : fix.getReplacements(endPositions)) {
@@ -94,21 +100,37 @@ public final class DescriptionBasedDiff implements DescriptionListener, Diff {
     }
   }
 
+  /**
+   * Reads everything this diff still needs from the compilation unit's trees, which it then
+   * releases. Since javac goes on to modify the trees, this must be called on the compiler's thread
+   * before the diff is handed to another one; {@link #applyDifferences} calls it if it has not been
+   * called yet.
+   */
   @Override
-  public void applyDifferences(SourceFile sourceFile) throws DiffNotApplicableException {
+  public void onFinished() {
+    if (compilationUnit == null) {
+      return;
+    }
     if (!importsToAdd.isEmpty() || !importsToRemove.isEmpty()) {
       ImportStatements importStatements = ImportStatements.create(compilationUnit);
       importStatements.addAll(importsToAdd);
       importStatements.removeAll(importsToRemove);
-      replacements.add(
+      importReplacement =
           Replacement.create(
               importStatements.getStartPos(),
               importStatements.getEndPos(),
-              importStatements.toString()));
+              importStatements.toString());
     }
-    for (Replacement replacement : replacements.descending()) {
-      sourceFile.replaceChars(replacement.startPosition(), replacement.endPosition(),
-          replacement.replaceWith());
+    compilationUnit = null;
+    endPositions = null;
+  }
+
+  @Override
+  public void applyDifferences(SourceFile sourceFile) throws DiffNotApplicableException {
+    onFinished();
+    if (importReplacement != null) {
+      replacements.add(importReplacement);
     }
+    sourceFile.makeReplacements(replacements);
   }
 }
@@ -28,6 +28,8 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,6 +41,9 @@ import java.util.logging.Logger;
  */
 public class DiffApplier extends AbstractService {
   private static final Logger logger = Logger.getLogger(DiffApplier.class.getName());
+  // the number of diffs that may wait for each worker before put applies them on the caller's
+  // thread
+  private static final int QUEUED_DIFFS_PER_WORKER = 4;
   private final ExecutorService workerService;
   private final Set<String> refactoredPaths;
   private final Set<String> diffsFailedPaths;
@@ -46,11 +51,22 @@ public class DiffApplier extends AbstractService {
   private final FileDestination destination;
   private final AtomicInteger completedFiles;
   private final Stopwatch stopwatch;
+  // the total time spent in each phase of applying a diff, in nanoseconds, and the total size of
+  // the sources written
+  private final AtomicLong queuedNanos = new AtomicLong();
+  private final AtomicLong readNanos = new AtomicLong();
+  private final AtomicLong applyNanos = new AtomicLong();
+  private final AtomicLong writeNanos = new AtomicLong();
+  private final AtomicLong charsWritten = new AtomicLong();
+  // the first unexpected exception thrown while applying a diff, which fails the service once all
+  // of the diffs have been applied
+  private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
 
   // the number of diffs in flight, plus 1 if the service is in the RUNNING state
   private final AtomicInteger runState = new AtomicInteger();
 
   public DiffApplier(int diffParallelism, FileSource source, FileDestination destination) {
+    Preconditions.checkArgument(diffParallelism > 0, "diffParallelism must be positive");
     Preconditions.checkNotNull(source);
     Preconditions.checkNotNull(destination);
     this.diffsFailedPaths = new ConcurrentSkipListSet<>();
@@ -59,15 +75,19 @@ public class DiffApplier extends AbstractService {
     this.destination = destination;
     this.completedFiles = new AtomicInteger(0);
     this.stopwatch = Stopwatch.createUnstarted();
-    // configure a bounded queue and a rejectedexecutionpolicy.
-    // In this case CallerRuns may be appropriate.
-    this.workerService = new ThreadPoolExecutor(
-        0,
-        diffParallelism,
-        5,
-        TimeUnit.SECONDS,
-        new ArrayBlockingQueue<Runnable>(50),
-        new ThreadPoolExecutor.CallerRunsPolicy());
+    // All of the workers are core threads, so every one of them is busy before any diff is queued.
+    // The queue is bounded, and once it is full the caller applies the diff itself, which bounds
+    // the number of diffs in flight and applies backpressure to the compilation producing them.
+    ThreadPoolExecutor workerService =
+        new ThreadPoolExecutor(
+            diffParallelism,
+            diffParallelism,
+            5,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<Runnable>(QUEUED_DIFFS_PER_WORKER * diffParallelism),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    workerService.allowCoreThreadTimeOut(true);
+    this.workerService = workerService;
   }
 
   @Override
@@ -87,12 +107,15 @@ public class DiffApplier extends AbstractService {
       workerService.shutdown();
       try {
         destination.flush();
-        notifyStopped();
+        if (failure.get() != null) {
+          notifyFailed(failure.get());
+        } else {
+          notifyStopped();
+        }
       } catch (Exception e) {
         notifyFailed(e);
       }
-      logger.log(Level.INFO,
-        String.format("Completed %d files in %s", completedFiles.get(), stopwatch));
+      logger.log(Level.INFO, summary());
       if (!diffsFailedPaths.isEmpty()) {
         logger.log(Level.SEVERE, String.format("Diffs failed to apply to %d files: %s",
             diffsFailedPaths.size(), Iterables.limit(diffsFailedPaths, 30)));
@@ -100,8 +123,29 @@ public class DiffApplier extends AbstractService {
     }
   }
 
+  /** Returns the throughput, and the average time spent in each phase of applying a diff. */
+  private String summary() {
+    int completed = completedFiles.get();
+    String summary = String.format("Completed %d files in %s", completed, stopwatch);
+    if (completed == 0) {
+      return summary;
+    }
+    double seconds = Math.max(stopwatch.elapsed(TimeUnit.NANOSECONDS), 1) / 1e9;
+    return String.format(
+        "%s (%.1f files/s, %.0f chars/s); per file: %.2f ms queued, %.2f ms reading, "
+            + "%.2f ms applying, %.2f ms writing",
+        summary,
+        completed / seconds,
+        charsWritten.get() / seconds,
+        queuedNanos.get() / 1e6 / completed,
+        readNanos.get() / 1e6 / completed,
+        applyNanos.get() / 1e6 / completed,
+        writeNanos.get() / 1e6 / completed);
+  }
+
   private final class Task implements Runnable {
     private final Diff diff;
+    private final long submitted = System.nanoTime();
 
     Task(Diff diff) {
       this.diff = diff;
@@ -109,20 +153,29 @@ public class DiffApplier extends AbstractService {
 
     @Override
     public void run() {
+      long started = System.nanoTime();
       try {
         SourceFile file = source.readFile(diff.getRelevantFileName());
+        long read = System.nanoTime();
         diff.applyDifferences(file);
+        long applied = System.nanoTime();
         destination.writeFile(file);
+        long written = System.nanoTime();
 
-        int completed = completedFiles.incrementAndGet();
-        if (completed % 100 == 0) {
-          logger.log(Level.INFO,
-                     String.format("Completed %d files in %s", completed, stopwatch));
-        }
+        queuedNanos.addAndGet(started - submitted);
+        readNanos.addAndGet(read - started);
+        applyNanos.addAndGet(applied - read);
+        writeNanos.addAndGet(written - applied);
+        charsWritten.addAndGet(file.getAsSequence().length());
+        completedFiles.incrementAndGet();
       } catch (IOException | DiffNotApplicableException e) {
         logger.log(Level.WARNING, "Failed to apply diff to file " + diff.getRelevantFileName(),
                    e);
         diffsFailedPaths.add(diff.getRelevantFileName());
+      } catch (RuntimeException e) {
+        logger.log(Level.SEVERE, "Failed to apply diff to file " + diff.getRelevantFileName(), e);
+        diffsFailedPaths.add(diff.getRelevantFileName());
+        failure.compareAndSet(null, e);
       } finally {
         decrementTasks();
       }
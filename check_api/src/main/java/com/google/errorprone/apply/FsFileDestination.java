@@ -16,12 +16,24 @@
 
 package com.google.errorprone.apply;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Arrays;
 
-/** A {@link FileDestination} that writes content to a destination on the local filesystem. */
+/**
+ * A {@link FileDestination} that writes content to a destination on the local filesystem.
+ *
+ * <p>Each file is written to a temporary file in the same directory, which is then moved over the
+ * original, so readers never see a partially written file. A symbolic link is followed, and the
+ * file it refers to is replaced rather than the link. Files whose content is unchanged are not
+ * written at all.
+ */
 public final class FsFileDestination implements FileDestination {
 
   private final Path rootPath;
@@ -33,7 +45,39 @@ public final class FsFileDestination implements FileDestination {
   @Override
   public void writeFile(SourceFile update) throws IOException {
     Path targetPath = rootPath.resolve(update.getPath());
-    Files.write(targetPath, update.getSourceText().getBytes(StandardCharsets.UTF_8));
+    String sourceText = update.getSourceText();
+    if (sourceText.equals(update.getOriginalSource())) {
+      return;
+    }
+    byte[] content = sourceText.getBytes(UTF_8);
+    boolean exists = Files.exists(targetPath);
+    if (exists
+        && update.getOriginalSource() == null
+        && Arrays.equals(Files.readAllBytes(targetPath), content)) {
+      return;
+    }
+    if (exists) {
+      // replace the file a symbolic link refers to, not the link
+      targetPath = targetPath.toRealPath();
+    }
+    Path temp =
+        Files.createTempFile(
+            targetPath.toAbsolutePath().getParent(), targetPath.getFileName().toString(), ".tmp");
+    try {
+      Files.write(temp, content);
+      if (exists && Files.getFileAttributeView(temp, PosixFileAttributeView.class) != null) {
+        // temporary files are only readable by their owner
+        Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(targetPath));
+      }
+      try {
+        Files.move(
+            temp, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, targetPath, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
   }
 
   @Override
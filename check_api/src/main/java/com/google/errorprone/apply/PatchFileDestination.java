@@ -18,21 +18,27 @@ package com.google.errorprone.apply;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import difflib.DiffUtils;
 import difflib.Patch;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * A {@link FileDestination} that writes a unix-patch file to {@code rootPath} containing the
  * suggested changes.
+ *
+ * <p>For a file changed only by {@link SourceFile#makeReplacements}, the hunks are generated
+ * directly from the replacements; otherwise the old and new sources are diffed.
  */
 public final class PatchFileDestination implements FileDestination {
 
@@ -42,40 +48,124 @@ public final class PatchFileDestination implements FileDestination {
 
   private final Path baseDir;
   private final Path rootPath;
-  // Path -> Unified Diff, sorted by path
-  private final Map<String, String> diffByFile = new TreeMap<>();
+  // The file the patch is written to on flush, if any.
+  @Nullable private final Path patchFile;
+  // The unified diff of each changed file is appended to this temporary file as soon as it is
+  // written, so only the index below is kept in memory. Files are written concurrently by the
+  // DiffApplier's workers, so both are guarded by this.
+  @Nullable private FileChannel spill;
+  // Path -> {offset, length} of its Unified Diff in the spill, sorted by path.
+  private final Map<String, long[]> diffByFile = new TreeMap<>();
 
+  /** Creates a destination whose patch is only read with {@link #patchFile}. */
   public PatchFileDestination(Path baseDir, Path rootPath) {
+    this(baseDir, rootPath, null);
+  }
+
+  /**
+   * Creates a destination that also writes the patch to {@code patchFile} when it is flushed. The
+   * diffs are spilled to a temporary file until then, and copied in order of their paths, whatever
+   * order the files were written in. The file is only created if there are changes.
+   */
+  public PatchFileDestination(Path baseDir, Path rootPath, @Nullable Path patchFile) {
     this.baseDir = baseDir;
     this.rootPath = rootPath;
+    this.patchFile = patchFile;
   }
 
   @Override
   public void writeFile(SourceFile update) throws IOException {
     Path sourceFilePath = rootPath.resolve(update.getPath());
-    String oldSource = new String(Files.readAllBytes(sourceFilePath), UTF_8);
-    String newSource = update.getSourceText();
-    if (!oldSource.equals(newSource)) {
-      List<String> originalLines = LINE_SPLITTER.splitToList(oldSource);
+    String relativePath = relativize(sourceFilePath);
+    StringBuilder diff = new StringBuilder();
+    if (update.getOriginalSource() != null) {
+      UnifiedDiff.write(relativePath, update.getOriginalSource(), update.getReplacements(), diff);
+    } else {
+      String oldSource = new String(Files.readAllBytes(sourceFilePath), UTF_8);
+      String newSource = update.getSourceText();
+      if (!oldSource.equals(newSource)) {
+        List<String> originalLines = LINE_SPLITTER.splitToList(oldSource);
 
-      Patch<String> diff = DiffUtils.diff(originalLines, LINE_SPLITTER.splitToList(newSource));
-      String relativePath = relativize(sourceFilePath);
-      List<String> unifiedDiff =
-          DiffUtils.generateUnifiedDiff(relativePath, relativePath, originalLines, diff, 2);
+        Patch<String> patch = DiffUtils.diff(originalLines, LINE_SPLITTER.splitToList(newSource));
+        for (String line :
+            DiffUtils.generateUnifiedDiff(relativePath, relativePath, originalLines, patch, 2)) {
+          diff.append(line).append('\n');
+        }
+      }
+    }
+    if (diff.length() > 0) {
+      spill(sourceFilePath.toString(), ByteBuffer.wrap(diff.toString().getBytes(UTF_8)));
+    }
+  }
 
-      String diffString = Joiner.on("\n").join(unifiedDiff);
-      diffByFile.put(sourceFilePath.toString(), diffString);
+  private synchronized void spill(String path, ByteBuffer diff) throws IOException {
+    if (spill == null) {
+      spill =
+          FileChannel.open(
+              Files.createTempFile("patch", ".tmp"),
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.DELETE_ON_CLOSE);
     }
+    long offset = spill.size();
+    long length = diff.remaining();
+    while (diff.hasRemaining()) {
+      spill.write(diff, spill.size());
+    }
+    diffByFile.put(path, new long[] {offset, length});
   }
 
   private String relativize(Path sourceFilePath) {
     return baseDir.relativize(sourceFilePath).toString();
   }
 
-  public String patchFile() {
-    return diffByFile.values().stream().collect(Collectors.joining("\n"));
+  /**
+   * Returns the patch, read back from the temporary file in order of the changed files' paths. It
+   * is empty once the patch has been flushed to a patch file.
+   */
+  public synchronized String patchFile() {
+    StringBuilder patch = new StringBuilder();
+    for (long[] segment : diffByFile.values()) {
+      ByteBuffer diff = ByteBuffer.allocate((int) segment[1]);
+      try {
+        while (diff.hasRemaining()) {
+          if (spill.read(diff, segment[0] + diff.position()) < 0) {
+            throw new IOException("truncated patch spill file");
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      patch.append(new String(diff.array(), UTF_8));
+    }
+    return patch.toString();
   }
 
+  /**
+   * Writes the patch to the patch file, if there is one and there are changes, and deletes the
+   * temporary file.
+   */
   @Override
-  public void flush() throws IOException {}
+  public synchronized void flush() throws IOException {
+    if (patchFile == null || diffByFile.isEmpty()) {
+      return;
+    }
+    try (FileChannel out =
+        FileChannel.open(
+            patchFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      for (long[] segment : diffByFile.values()) {
+        long copied = 0;
+        while (copied < segment[1]) {
+          copied += spill.transferTo(segment[0] + copied, segment[1] - copied, out);
+        }
+      }
+    } finally {
+      spill.close();
+      spill = null;
+      diffByFile.clear();
+    }
+  }
 }
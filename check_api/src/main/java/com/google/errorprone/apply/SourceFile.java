@@ -18,13 +18,17 @@ package com.google.errorprone.apply;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.CharSource;
+import com.google.errorprone.fixes.Replacement;
+import com.google.errorprone.fixes.Replacements;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.io.StringReader;
 import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nullable;
 import javax.tools.JavaFileObject;
 
 /**
@@ -39,6 +43,11 @@ public class SourceFile {
 
   private final String path;
   private final StringBuilder sourceBuilder;
+  private boolean modified = false;
+  // If the only change to the source was a single call to makeReplacements, the source before it
+  // and the replacements it made, in ascending order.
+  @Nullable private String originalSource;
+  @Nullable private ImmutableList<Replacement> replacements;
   
   public static SourceFile create(JavaFileObject fileObject) throws IOException {
     return new SourceFile(fileObject.toUri().getPath(), fileObject.getCharContent(false));
@@ -83,6 +92,7 @@ public class SourceFile {
    * the passed-in value.
    */
   public void setSourceText(CharSequence source) {
+    markModified();
     sourceBuilder.setLength(0);     // clear StringBuilder
     sourceBuilder.append(source);
   }
@@ -131,6 +141,7 @@ public class SourceFile {
    * Replace the source code with the new lines of code.
    */
   public void replaceLines(List<String> lines) {
+    markModified();
     sourceBuilder.replace(0, sourceBuilder.length(), Joiner.on("\n").join(lines) + "\n");
   }
   
@@ -161,13 +172,80 @@ public class SourceFile {
    * and end parameters.
    */
   public void replaceChars(int startPosition, int endPosition, String replacement) {
+    markModified();
     try {
       sourceBuilder.replace(startPosition, endPosition, replacement);
     } catch (StringIndexOutOfBoundsException e) {
-      throw new IndexOutOfBoundsException(
-          String.format("Replacement cannot be made. Source file %s has length %d, requested start "
-              + "position %d, requested end position %d, replacement %s",
-              path, sourceBuilder.length(), startPosition, endPosition, replacement));
+      throw replacementOutOfBounds(startPosition, endPosition, replacement);
     }
   }
+
+  /**
+   * Makes all of the given replacements, with positions relative to the current source.
+   *
+   * <p>Unlike calling {@link #replaceChars} for each replacement, which shifts the rest of the
+   * source every time, this walks the source once, copying the unchanged regions and the
+   * replacements into a buffer of the final size, so it takes time linear in the size of the
+   * result.
+   */
+  public void makeReplacements(Replacements replacements) {
+    ImmutableList<Replacement> ascending = ImmutableList.copyOf(replacements.ascending());
+    int length = sourceBuilder.length();
+    int newLength = length;
+    for (Replacement replacement : ascending) {
+      if (replacement.endPosition() > length) {
+        throw replacementOutOfBounds(
+            replacement.startPosition(), replacement.endPosition(), replacement.replaceWith());
+      }
+      newLength +=
+          replacement.replaceWith().length()
+              - (replacement.endPosition() - replacement.startPosition());
+    }
+    StringBuilder newSource = new StringBuilder(newLength);
+    int position = 0;
+    for (Replacement replacement : ascending) {
+      newSource.append(sourceBuilder, position, replacement.startPosition());
+      newSource.append(replacement.replaceWith());
+      position = replacement.endPosition();
+    }
+    newSource.append(sourceBuilder, position, length);
+    String original = modified ? null : sourceBuilder.toString();
+    setSourceText(newSource);
+    if (original != null) {
+      this.originalSource = original;
+      this.replacements = ascending;
+    }
+  }
+
+  /**
+   * Returns the source before the replacements returned by {@link #getReplacements()} were made,
+   * or {@code null} if the source has been changed in any other way.
+   */
+  @Nullable
+  String getOriginalSource() {
+    return originalSource;
+  }
+
+  /**
+   * Returns the replacements that were made to the {@linkplain #getOriginalSource() original
+   * source}, in ascending order, or {@code null} if the source has been changed in any other way.
+   */
+  @Nullable
+  ImmutableList<Replacement> getReplacements() {
+    return replacements;
+  }
+
+  private void markModified() {
+    modified = true;
+    originalSource = null;
+    replacements = null;
+  }
+
+  private IndexOutOfBoundsException replacementOutOfBounds(
+      int startPosition, int endPosition, String replacement) {
+    return new IndexOutOfBoundsException(
+        String.format("Replacement cannot be made. Source file %s has length %d, requested start "
+            + "position %d, requested end position %d, replacement %s",
+            path, sourceBuilder.length(), startPosition, endPosition, replacement));
+  }
 }
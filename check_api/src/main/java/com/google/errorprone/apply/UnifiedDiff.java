@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.apply;
+
+import com.google.common.base.Splitter;
+import com.google.errorprone.fixes.Replacement;
+import com.google.errorprone.util.LineOffsets;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a unified diff for a set of replacements made to a source file, directly from the
+ * replacements, rather than by diffing the whole of the old and new sources.
+ *
+ * <p>Lines are split on {@code '\n'}, and hunks have two lines of context and are merged when
+ * their context would overlap, as in {@link difflib.DiffUtils#generateUnifiedDiff}.
+ */
+final class UnifiedDiff {
+
+  private static final int CONTEXT = 2;
+  private static final Splitter LINE_SPLITTER = Splitter.on('\n');
+
+  /** A run of consecutive lines of the original source, and the lines that replace them. */
+  private static final class Delta {
+    final int position;
+    final List<String> original;
+    final List<String> revised;
+
+    Delta(int position, List<String> original, List<String> revised) {
+      this.position = position;
+      this.original = original;
+      this.revised = revised;
+    }
+
+    int end() {
+      return position + original.size();
+    }
+  }
+
+  /**
+   * Writes the diff between {@code source} and the result of making {@code replacements} to it,
+   * which must be sorted in ascending order and must not overlap, to {@code out}. Nothing is
+   * written if the replacements do not change any lines.
+   */
+  static void write(String path, String source, List<Replacement> replacements, Appendable out)
+      throws IOException {
+    UnifiedDiff diff = new UnifiedDiff(source);
+    List<Delta> deltas = diff.deltas(replacements);
+    if (deltas.isEmpty()) {
+      return;
+    }
+    out.append("--- ").append(path).append('\n');
+    out.append("+++ ").append(path).append('\n');
+    int offset = 0;
+    for (int start = 0; start < deltas.size(); ) {
+      int end = start + 1;
+      while (end < deltas.size()
+          && deltas.get(end).position - deltas.get(end - 1).end() <= 2 * CONTEXT) {
+        end++;
+      }
+      offset = diff.writeHunk(deltas.subList(start, end), offset, out);
+      start = end;
+    }
+  }
+
+  private final String source;
+  private final LineOffsets lineOffsets;
+
+  private UnifiedDiff(String source) {
+    this.source = source;
+    this.lineOffsets = LineOffsets.of(source);
+  }
+
+  private int lineCount() {
+    return lineOffsets.lineCount();
+  }
+
+  // Lines are numbered from 0 here, as in the hunks' arithmetic, and from 1 in the line offsets.
+
+  /** Returns the line containing the character at {@code position}. */
+  private int lineOf(int position) {
+    return lineOffsets.lineNumber(position) - 1;
+  }
+
+  private int lineStart(int line) {
+    return lineOffsets.lineStart(line + 1);
+  }
+
+  /** Returns the end of {@code line}, excluding its line terminator. */
+  private int lineEnd(int line) {
+    return lineOffsets.lineEnd(line + 1);
+  }
+
+  private String line(int line) {
+    return source.substring(lineStart(line), lineEnd(line));
+  }
+
+  /**
+   * Groups the replacements by the lines they touch, and returns the lines each group changes,
+   * without any unchanged lines at either end.
+   */
+  private List<Delta> deltas(List<Replacement> replacements) {
+    List<Delta> deltas = new ArrayList<>();
+    for (int i = 0; i < replacements.size(); ) {
+      int first = lineOf(replacements.get(i).startPosition());
+      int last = lineOf(replacements.get(i).endPosition());
+      StringBuilder revised = new StringBuilder();
+      int position = lineStart(first);
+      do {
+        Replacement replacement = replacements.get(i);
+        revised.append(source, position, replacement.startPosition());
+        revised.append(replacement.replaceWith());
+        position = replacement.endPosition();
+        last = Math.max(last, lineOf(position));
+        i++;
+      } while (i < replacements.size() && lineOf(replacements.get(i).startPosition()) <= last);
+      revised.append(source, position, lineEnd(last));
+
+      List<String> originalLines = new ArrayList<>();
+      for (int line = first; line <= last; line++) {
+        originalLines.add(line(line));
+      }
+      List<String> revisedLines = LINE_SPLITTER.splitToList(revised);
+      int prefix = 0;
+      while (prefix < originalLines.size()
+          && prefix < revisedLines.size()
+          && originalLines.get(prefix).equals(revisedLines.get(prefix))) {
+        prefix++;
+      }
+      int suffix = 0;
+      while (suffix < originalLines.size() - prefix
+          && suffix < revisedLines.size() - prefix
+          && originalLines
+              .get(originalLines.size() - 1 - suffix)
+              .equals(revisedLines.get(revisedLines.size() - 1 - suffix))) {
+        suffix++;
+      }
+      if (prefix + suffix < originalLines.size() || prefix + suffix < revisedLines.size()) {
+        deltas.add(
+            new Delta(
+                first + prefix,
+                originalLines.subList(prefix, originalLines.size() - suffix),
+                revisedLines.subList(prefix, revisedLines.size() - suffix)));
+      }
+    }
+    return deltas;
+  }
+
+  /**
+   * Writes a hunk containing {@code deltas}, given the difference between the line numbers of the
+   * original and revised sources before it, and returns that difference after it.
+   */
+  private int writeHunk(List<Delta> deltas, int offset, Appendable out) throws IOException {
+    int start = Math.max(0, deltas.get(0).position - CONTEXT);
+    int end = Math.min(lineCount(), deltas.get(deltas.size() - 1).end() + CONTEXT);
+    int revisedSize = end - start;
+    for (Delta delta : deltas) {
+      revisedSize += delta.revised.size() - delta.original.size();
+    }
+    out.append("@@ -")
+        .append(Integer.toString(start + 1))
+        .append(',')
+        .append(Integer.toString(end - start))
+        .append(" +")
+        .append(Integer.toString(start + offset + 1))
+        .append(',')
+        .append(Integer.toString(revisedSize))
+        .append(" @@\n");
+    int line = start;
+    for (Delta delta : deltas) {
+      for (; line < delta.position; line++) {
+        out.append(' ').append(line(line)).append('\n');
+      }
+      for (String original : delta.original) {
+        out.append('-').append(original).append('\n');
+      }
+      for (String revised : delta.revised) {
+        out.append('+').append(revised).append('\n');
+      }
+      line = delta.end();
+    }
+    for (; line < end; line++) {
+      out.append(' ').append(line(line)).append('\n');
+    }
+    return offset + revisedSize - (end - start);
+  }
+}
@@ -25,6 +25,7 @@ import com.google.errorprone.BugPattern.Suppressibility;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.fixes.Fix;
 import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Suppressible;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.AnnotatedTypeTree;
@@ -47,6 +48,7 @@ import com.sun.source.tree.DoWhileLoopTree;
 import com.sun.source.tree.EmptyStatementTree;
 import com.sun.source.tree.EnhancedForLoopTree;
 import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.ForLoopTree;
 import com.sun.source.tree.IdentifierTree;
 import com.sun.source.tree.IfTree;
@@ -339,6 +341,19 @@ public abstract class BugChecker implements Suppressible, Serializable {
     Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state);
   }
 
+  /**
+   * May be implemented by a {@link MethodInvocationTreeMatcher} that only reports invocations
+   * matched by one of a fixed set of {@link com.google.errorprone.matchers.method.MethodMatchers}.
+   *
+   * <p>If every declared matcher restricts the method name, the scanner indexes the checker by
+   * those names and only calls {@code matchMethodInvocation} for invocations of methods with one
+   * of them. Otherwise the declaration has no effect.
+   */
+  public static interface MethodInvocationCandidates {
+    /** The method matchers that every reported invocation is matched by at least one of. */
+    Iterable<? extends Matcher<ExpressionTree>> candidateMethodMatchers();
+  }
+
   public static interface ModifiersTreeMatcher extends Suppressible {
     Description matchModifiers(ModifiersTree tree, VisitorState state);
   }
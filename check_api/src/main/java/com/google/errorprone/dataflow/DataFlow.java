@@ -20,15 +20,25 @@ import com.google.auto.value.AutoValue;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.errorprone.ErrorProneOptions;
+import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.LambdaExpressionTree;
 import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.processing.JavacProcessingEnvironment;
 import com.sun.tools.javac.util.Context;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import javax.annotation.Nullable;
 import javax.annotation.processing.ProcessingEnvironment;
 import org.checkerframework.dataflow.analysis.AbstractValue;
@@ -55,19 +65,29 @@ public final class DataFlow {
     ControlFlowGraph getControlFlowGraph();
   }
 
+  /** The maximum number of control flow graphs that are cached for a compilation unit. */
+  private static final int MAX_CACHED_CFGS = 8;
+
   /*
    * We cache both the control flow graph and the analyses that are run on it.
    * We tuned performance to the following assumptions (which are currently true for error-prone):
    *
    * <ul>
-   * <li> all dataflow analyses for a method are finished before another method is analyzed
-   * <li> multiple dataflow analyses for the same method are executed in arbitrary order
+   * <li> all dataflow analyses for a compilation unit are finished before another compilation
+   *      unit is analyzed
+   * <li> dataflow analyses for a small number of methods (e.g. a method and the lambdas it
+   *      contains) may be interleaved, and multiple analyses for the same method are executed in
+   *      arbitrary order
    * </ul>
    *
+   * The analyses for a control flow graph are evicted together with the graph, and both caches are
+   * cleared when a different compilation unit is analyzed or {@link #releaseCaches} is called.
+   *
    * TODO(user): Write a test that checks these assumptions
    */
   private static final LoadingCache<AnalysisParams, Analysis<?, ?, ?>> analysisCache =
       CacheBuilder.newBuilder()
+          .recordStats()
           .build(
               new CacheLoader<AnalysisParams, Analysis<?, ?, ?>>() {
                 @Override
@@ -85,7 +105,14 @@ public final class DataFlow {
 
   private static final LoadingCache<CfgParams, ControlFlowGraph> cfgCache =
       CacheBuilder.newBuilder()
-          .maximumSize(1)
+          .maximumSize(MAX_CACHED_CFGS)
+          .recordStats()
+          .removalListener(
+              (RemovalNotification<CfgParams, ControlFlowGraph> removed) ->
+                  analysisCache
+                      .asMap()
+                      .keySet()
+                      .removeIf(params -> params.cfg() == removed.getValue()))
           .build(
               new CacheLoader<CfgParams, ControlFlowGraph>() {
                 @Override
@@ -100,13 +127,113 @@ public final class DataFlow {
                   }
                   final ProcessingEnvironment env = key.environment();
 
-                  analysisCache.invalidateAll();
                   CompilationUnitTree root = methodPath.getCompilationUnit();
                   // TODO(user), replace with faster build(bodyPath, env, ast, false, false);
                   return CFGBuilder.build(root, env, ast, false, false);
                 }
               });
 
+  /** The compilation unit whose control flow graphs and analyses are currently cached. */
+  private static CompilationUnitTree cachedCompilationUnit;
+
+  /**
+   * Whether each method or lambda of {@link #cachedCompilationUnit} that dataflow was requested
+   * for is within the limits set by {@link ErrorProneOptions#dataflowMaxMethodSize} and {@link
+   * ErrorProneOptions#dataflowMaxCompilationUnitSize}.
+   */
+  private static final Map<Tree, Boolean> withinLimits = new IdentityHashMap<>();
+
+  /** The total size of the methods and lambdas of {@link #cachedCompilationUnit} analyzed. */
+  private static long compilationUnitSize;
+
+  /**
+   * The state that clients derive from the analyses of {@link #cachedCompilationUnit}, by owner,
+   * see {@link #getCompilationUnitState}.
+   */
+  private static final Map<Object, Object> compilationUnitState = new IdentityHashMap<>();
+
+  /**
+   * The methods and lambdas of a compilation that were not analyzed because they exceeded a limit,
+   * by reason and location.
+   */
+  private static final Context.Key<ConcurrentHashMultiset<String>> BAILOUTS_KEY =
+      new Context.Key<>();
+
+  /**
+   * Releases the cached control flow graphs and analyses. Called once a compilation unit has been
+   * scanned.
+   */
+  public static synchronized void releaseCaches() {
+    cfgCache.invalidateAll();
+    withinLimits.clear();
+    compilationUnitSize = 0;
+    compilationUnitState.clear();
+    cachedCompilationUnit = null;
+  }
+
+  private static synchronized void enterCompilationUnit(CompilationUnitTree compilationUnit) {
+    if (compilationUnit != cachedCompilationUnit) {
+      releaseCaches();
+      cachedCompilationUnit = compilationUnit;
+    }
+  }
+
+  /**
+   * Registers the record of bailouts in the compilation's {@code context}, so that the {@link
+   * com.google.errorprone.SubContext}s created for each compilation unit share it.
+   */
+  public static void registerBailouts(Context context) {
+    bailouts(context);
+  }
+
+  private static synchronized ConcurrentHashMultiset<String> bailouts(Context context) {
+    ConcurrentHashMultiset<String> bailouts = context.get(BAILOUTS_KEY);
+    if (bailouts == null) {
+      bailouts = ConcurrentHashMultiset.create();
+      context.put(BAILOUTS_KEY, bailouts);
+    }
+    return bailouts;
+  }
+
+  /**
+   * Returns the number of methods and lambdas in the compilation of {@code context} that dataflow
+   * analyses were not run on because they exceeded the configured limits, keyed by the reason and
+   * the enclosing method.
+   */
+  public static ImmutableMultiset<String> getBailouts(Context context) {
+    ConcurrentHashMultiset<String> bailouts = context.get(BAILOUTS_KEY);
+    return bailouts == null ? ImmutableMultiset.<String>of() : ImmutableMultiset.copyOf(bailouts);
+  }
+
+  /**
+   * Returns the value {@code owner} stored for {@code compilationUnit} with {@link
+   * #putCompilationUnitState}, or null if there is none. Like the cached analyses, the values are
+   * released when a different compilation unit is analyzed or {@link #releaseCaches} is called.
+   */
+  @Nullable
+  public static synchronized Object getCompilationUnitState(
+      Object owner, CompilationUnitTree compilationUnit) {
+    enterCompilationUnit(compilationUnit);
+    return compilationUnitState.get(owner);
+  }
+
+  /** Stores a value for {@code owner} until the caches for {@code compilationUnit} are released. */
+  public static synchronized void putCompilationUnitState(
+      Object owner, CompilationUnitTree compilationUnit, Object value) {
+    enterCompilationUnit(compilationUnit);
+    compilationUnitState.put(owner, value);
+  }
+
+  /** Returns the hit and miss statistics of the control flow graph cache. */
+  public static CacheStats cfgCacheStats() {
+    return cfgCache.stats();
+  }
+
+  /** Returns the hit and miss statistics of the analysis cache. */
+  public static CacheStats analysisCacheStats() {
+    return analysisCache.stats();
+  }
+
   // TODO(user), remove once we merge jdk8 specific's with core
   private static <T> TreePath findEnclosingMethodOrLambda(TreePath path) {
     while (path != null) {
@@ -118,17 +245,60 @@ public final class DataFlow {
     return null;
   }
 
+  /**
+   * Returns the path to the method or lambda that encloses the leaf of {@code path}, if dataflow
+   * analyses can be run on it, and null otherwise.
+   */
+  @Nullable
+  public static TreePath findAnalyzableMethodOrLambda(TreePath path) {
+    final TreePath enclosingMethodPath = findEnclosingMethodOrLambda(path);
+    if (enclosingMethodPath == null) {
+      // TODO(user) this can happen in field initialization.
+      // Currently not supported because it only happens in ~2% of cases.
+      return null;
+    }
+
+    final Tree method = enclosingMethodPath.getLeaf();
+    if (method instanceof MethodTree && ((MethodTree) method).getBody() == null) {
+      // expressions can occur in abstract methods, for example {@code Map.Entry} in:
+      //
+      //   abstract Set<Map.Entry<K, V>> entries();
+      return null;
+    }
+    return enclosingMethodPath;
+  }
+
   /**
    * Run the {@code transfer} dataflow analysis over the method or lambda which is the leaf of the
-   * {@code methodPath}.
+   * {@code methodPath}, or return null without running it if the method or lambda exceeds the
+   * limits set in the {@link ErrorProneOptions}.
+   *
+   * @see #methodDataflow
+   */
+  @Nullable
+  public static <A extends AbstractValue<A>, S extends Store<S>, T extends TransferFunction<A, S>>
+      Result<A, S, T> methodDataflowWithinLimits(
+          TreePath methodPath, Context context, T transfer) {
+    if (!isWithinLimits(methodPath, context)) {
+      return null;
+    }
+    return methodDataflow(methodPath, context, transfer);
+  }
+
+  /**
+   * Run the {@code transfer} dataflow analysis over the method or lambda which is the leaf of the
+   * {@code methodPath}, without checking the size limits. Callers should use {@link
+   * #methodDataflowWithinLimits}, which checks them first and also releases the caches of any
+   * other compilation unit.
    *
    * <p>For caching, we make the following assumptions:
    * - if two paths to methods are {@code equal}, their control flow graph is the same.
    * - if two transfer functions are {@code equal}, and are run over the same control flow graph,
    *   the analysis result is the same.
    * - for all contexts, the analysis result is the same.
+   * - all analyses for a compilation unit are run before analyses for the next one.
    */
-  private static <A extends AbstractValue<A>, S extends Store<S>, T extends TransferFunction<A, S>>
+  static <A extends AbstractValue<A>, S extends Store<S>, T extends TransferFunction<A, S>>
       Result<A, S, T> methodDataflow(TreePath methodPath, Context context, T transfer) {
     final ProcessingEnvironment env = JavacProcessingEnvironment.instance(context);
     final ControlFlowGraph cfg = cfgCache.getUnchecked(CfgParams.create(methodPath, env));
@@ -149,17 +319,94 @@ public final class DataFlow {
     };
   }
 
+  /**
+   * Returns whether the method or lambda which is the leaf of {@code methodPath} is small enough
+   * to run dataflow analyses on, given the limits set in the {@link ErrorProneOptions}. The answer
+   * is computed once per method, and each method that exceeds a limit is recorded in {@link
+   * #getBailouts}.
+   */
+  private static synchronized boolean isWithinLimits(TreePath methodPath, Context context) {
+    enterCompilationUnit(methodPath.getCompilationUnit());
+    Boolean cached = withinLimits.get(methodPath.getLeaf());
+    if (cached != null) {
+      return cached;
+    }
+    ErrorProneOptions options = context.get(ErrorProneOptions.class);
+    boolean result = true;
+    if (options != null) {
+      int size = treeSize(methodPath.getLeaf());
+      if (size > options.dataflowMaxMethodSize()) {
+        bailouts(context).add("method too large: " + describe(methodPath));
+        result = false;
+      } else if (compilationUnitSize + size > options.dataflowMaxCompilationUnitSize()) {
+        bailouts(context).add("compilation unit too large: " + describe(methodPath));
+        result = false;
+      } else {
+        compilationUnitSize += size;
+      }
+    }
+    withinLimits.put(methodPath.getLeaf(), result);
+    return result;
+  }
+
+  /** Returns the number of nodes in the given tree. */
+  private static int treeSize(Tree tree) {
+    int[] size = {0};
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void scan(Tree node, Void unused) {
+        if (node != null) {
+          size[0]++;
+        }
+        return super.scan(node, unused);
+      }
+    }.scan(tree, null);
+    return size[0];
+  }
+
+  /** Describes the method enclosing the leaf of {@code path}, for reporting bailouts. */
+  private static String describe(TreePath path) {
+    for (TreePath current = path; current != null; current = current.getParentPath()) {
+      if (current.getLeaf() instanceof MethodTree) {
+        MethodSymbol sym = ASTHelpers.getSymbol((MethodTree) current.getLeaf());
+        if (sym != null) {
+          return sym.owner.getQualifiedName() + "." + sym.getSimpleName();
+        }
+      }
+    }
+    return path.getCompilationUnit().getSourceFile().getName();
+  }
+
   /**
    * Run the {@code transfer} dataflow analysis to compute the abstract value of the expression
    * which is the leaf of {@code exprPath}.
    *
    * @return dataflow result for the given expression or {@code null} if the expression is not
-   *     part of a method or lambda
+   *     part of a method or lambda, or if the method or lambda exceeds the limits set in the
+   *     {@link ErrorProneOptions}
    */
   @Nullable
   public static <A extends AbstractValue<A>, S extends Store<S>,
                  T extends TransferFunction<A, S>> A
       expressionDataflow(TreePath exprPath, Context context, T transfer) {
+    return expressionDataflow(exprPath, context, transfer, null);
+  }
+
+  /**
+   * Run the {@code transfer} dataflow analysis to compute the abstract value of the expression
+   * which is the leaf of {@code exprPath}.
+   *
+   * @param valueIfTooLarge the value to return without running the analysis if the enclosing
+   *     method or lambda exceeds the limits set in the {@link ErrorProneOptions}, typically the
+   *     most conservative value of the analysis
+   * @return dataflow result for the given expression or {@code null} if the expression is not
+   *     part of a method or lambda
+   */
+  @Nullable
+  public static <A extends AbstractValue<A>, S extends Store<S>,
+                 T extends TransferFunction<A, S>> A
+      expressionDataflow(
+          TreePath exprPath, Context context, T transfer, @Nullable A valueIfTooLarge) {
     final Tree leaf = exprPath.getLeaf();
     Preconditions.checkArgument(
         leaf instanceof ExpressionTree,
@@ -167,21 +414,13 @@ public final class DataFlow {
         leaf.getClass().getName());
 
     final ExpressionTree expr = (ExpressionTree) leaf;
-    final TreePath enclosingMethodPath = findEnclosingMethodOrLambda(exprPath);
+    final TreePath enclosingMethodPath = findAnalyzableMethodOrLambda(exprPath);
     if (enclosingMethodPath == null) {
-      // TODO(user) this can happen in field initialization.
-      // Currently not supported because it only happens in ~2% of cases.
       return null;
     }
-
-    final Tree method = enclosingMethodPath.getLeaf();
-    if (method instanceof MethodTree && ((MethodTree) method).getBody() == null) {
-      // expressions can occur in abstract methods, for example {@code Map.Entry} in:
-      //
-      //   abstract Set<Map.Entry<K, V>> entries();
-      return null;
+    if (!isWithinLimits(enclosingMethodPath, context)) {
+      return valueIfTooLarge;
     }
-
     return methodDataflow(enclosingMethodPath, context, transfer).getAnalysis().getValue(expr);
   }
 
@@ -18,14 +18,13 @@ package com.google.errorprone.dataflow;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Sets.intersection;
 import static javax.lang.model.element.ElementKind.EXCEPTION_PARAMETER;
 import static javax.lang.model.element.ElementKind.LOCAL_VARIABLE;
 import static javax.lang.model.element.ElementKind.PARAMETER;
 import static javax.lang.model.element.ElementKind.RESOURCE_VARIABLE;
 
-import com.google.common.collect.ImmutableMap;
-import java.util.HashMap;
+import com.google.errorprone.util.PersistentHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
 import javax.lang.model.element.Element;
@@ -40,7 +39,9 @@ import org.checkerframework.dataflow.cfg.node.LocalVariableNode;
  * <b>declaration</b>, so values persist across nodes.
  *
  * <p>To derive a new instance, {@linkplain #toBuilder() create a builder} from an old instance. To
- * start from scratch, call {@link #empty()}.
+ * start from scratch, call {@link #empty()}. Derived instances share structure with the instance
+ * they were derived from, and deriving an instance without changing any values returns the
+ * original instance.
  *
  * @author deminguyen@google.com (Demi Nguyen)
  */
@@ -48,17 +49,17 @@ public final class LocalStore<V extends AbstractValue<V>>
     implements Store<LocalStore<V>>, LocalVariableValues<V> {
 
   @SuppressWarnings({"unchecked", "rawtypes"}) // fully variant
-  private static final LocalStore<?> EMPTY = new LocalStore(ImmutableMap.of());
+  private static final LocalStore<?> EMPTY = new LocalStore(PersistentHashMap.empty());
 
   @SuppressWarnings("unchecked") // fully variant
   public static <V extends AbstractValue<V>> LocalStore<V> empty() {
     return (LocalStore<V>) EMPTY;
   }
 
-  private final ImmutableMap<Element, V> contents;
+  private final PersistentHashMap<Element, V> contents;
 
-  private LocalStore(Map<Element, V> contents) {
-    this.contents = ImmutableMap.copyOf(contents);
+  private LocalStore(PersistentHashMap<Element, V> contents) {
+    this.contents = contents;
   }
 
   @Override
@@ -89,10 +90,12 @@ public final class LocalStore<V extends AbstractValue<V>>
    * it.
    */
   public static final class Builder<V extends AbstractValue<V>> {
-    private final Map<Element, V> contents;
+    private final LocalStore<V> prototype;
+    private PersistentHashMap<Element, V> contents;
 
     Builder(LocalStore<V> prototype) {
-      contents = new HashMap<>(prototype.contents);
+      this.prototype = prototype;
+      this.contents = prototype.contents;
     }
 
     /**
@@ -103,12 +106,12 @@ public final class LocalStore<V extends AbstractValue<V>>
      */
     public Builder<V> setInformation(Element element, V value) {
       checkElementType(element);
-      contents.put(checkNotNull(element), checkNotNull(value));
+      contents = contents.put(checkNotNull(element), checkNotNull(value));
       return this;
     }
 
     public LocalStore<V> build() {
-      return new LocalStore<V>(contents);
+      return contents == prototype.contents ? prototype : new LocalStore<V>(contents);
     }
   }
 
@@ -120,30 +123,81 @@ public final class LocalStore<V extends AbstractValue<V>>
 
   @Override
   public LocalStore<V> leastUpperBound(LocalStore<V> other) {
-    Builder<V> result = LocalStore.<V>empty().toBuilder();
-    for (Element var : intersection(contents.keySet(), other.contents.keySet())) {
-      result.contents.put(var, contents.get(var).leastUpperBound(other.contents.get(var)));
+    if (other == this || other.contents == contents) {
+      return this;
+    }
+    if (isUpperBoundOf(other)) {
+      return this;
     }
+    if (other.isUpperBoundOf(this)) {
+      return other;
+    }
+    Builder<V> result = LocalStore.<V>empty().toBuilder();
+    contents.forEach(
+        (var, value) -> {
+          V otherValue = other.contents.get(var);
+          if (otherValue != null) {
+            result.contents = result.contents.put(var, value.leastUpperBound(otherValue));
+          }
+        });
     return result.build();
   }
 
+  /**
+   * Returns true if this store is its own least upper bound with {@code other}, i.e. if every
+   * variable in this store is also in {@code other}, with a value whose least upper bound with this
+   * store's value is this store's value.
+   */
+  private boolean isUpperBoundOf(LocalStore<V> other) {
+    if (contents.size() > other.contents.size()) {
+      return false;
+    }
+    boolean[] result = {true};
+    contents.forEach(
+        (var, value) -> {
+          if (result[0]) {
+            V otherValue = other.contents.get(var);
+            result[0] = otherValue != null && value.leastUpperBound(otherValue).equals(value);
+          }
+        });
+    return result[0];
+  }
+
   @Override
   public boolean equals(Object o) {
     if (!(o instanceof LocalStore)) {
       return false;
     }
     LocalStore<?> other = (LocalStore<?>) o;
-    return contents.equals(other.contents);
+    if (other.contents == contents) {
+      return true;
+    }
+    if (other.contents.size() != contents.size()) {
+      return false;
+    }
+    boolean[] result = {true};
+    contents.forEach(
+        (var, value) -> {
+          if (result[0]) {
+            result[0] = value.equals(other.contents.get(var));
+          }
+        });
+    return result[0];
   }
 
   @Override
   public int hashCode() {
-    return contents.hashCode();
+    // Consistent with Map#hashCode
+    int[] hash = {0};
+    contents.forEach((var, value) -> hash[0] += var.hashCode() ^ value.hashCode());
+    return hash[0];
   }
 
   @Override
   public String toString() {
-    return contents.toString();
+    Map<Element, V> map = new LinkedHashMap<>();
+    contents.forEach(map::put);
+    return map.toString();
   }
 
   @Override
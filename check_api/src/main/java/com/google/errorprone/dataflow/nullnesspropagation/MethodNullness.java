@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.dataflow.nullnesspropagation;
+
+import com.google.errorprone.dataflow.DataFlow;
+import com.google.errorprone.dataflow.LocalStore;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.util.Context;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.checkerframework.dataflow.analysis.Analysis;
+
+/**
+ * The {@link Nullness} of the expressions in a single method or lambda, computed by one run of a
+ * nullness analysis. Obtain instances from {@link NullnessAnalysis#getMethodNullness} or {@link
+ * TrustingNullnessAnalysis#getMethodNullness}.
+ *
+ * <p>Each expression's nullness is looked up in the analysis result once and then remembered, so
+ * checks that query many expressions in the same method pay for the analysis only once.
+ */
+public final class MethodNullness {
+
+  private final Tree method;
+  // null if the method exceeds the dataflow limits
+  @Nullable private final Analysis<Nullness, LocalStore<Nullness>, ?> analysis;
+  private final Nullness valueIfTooLarge;
+  private final Map<ExpressionTree, Nullness> values = new IdentityHashMap<>();
+
+  private MethodNullness(
+      Tree method,
+      @Nullable Analysis<Nullness, LocalStore<Nullness>, ?> analysis,
+      Nullness valueIfTooLarge) {
+    this.method = method;
+    this.analysis = analysis;
+    this.valueIfTooLarge = valueIfTooLarge;
+  }
+
+  /**
+   * Runs {@code transfer} over the method or lambda enclosing the leaf of {@code path}, or returns
+   * null if there is none that can be analyzed.
+   */
+  @Nullable
+  static MethodNullness create(
+      TreePath path, Context context, NullnessPropagationTransfer transfer) {
+    TreePath methodPath = DataFlow.findAnalyzableMethodOrLambda(path);
+    if (methodPath == null) {
+      return null;
+    }
+    try {
+      transfer.setContext(context).setCompilationUnit(path.getCompilationUnit());
+      DataFlow.Result<Nullness, LocalStore<Nullness>, NullnessPropagationTransfer> result =
+          DataFlow.methodDataflowWithinLimits(methodPath, context, transfer);
+      return new MethodNullness(
+          methodPath.getLeaf(),
+          result == null ? null : result.getAnalysis(),
+          transfer.defaultAssumption());
+    } finally {
+      transfer.setContext(null).setCompilationUnit(null);
+    }
+  }
+
+  /** Returns whether these results are for the method or lambda enclosing the leaf of path. */
+  boolean isFor(TreePath path) {
+    TreePath methodPath = DataFlow.findAnalyzableMethodOrLambda(path);
+    return methodPath != null && methodPath.getLeaf() == method;
+  }
+
+  /** The method or lambda these results are for. */
+  public Tree method() {
+    return method;
+  }
+
+  /**
+   * Returns the {@link Nullness} of {@code expr}, which must be part of {@link #method}.
+   *
+   * <p>If the expression required the compiler to generate autoboxing or autounboxing calls,
+   * returns the {@code Nullness} <i>after</i> the boxing/unboxing.
+   */
+  public Nullness getNullness(ExpressionTree expr) {
+    if (analysis == null) {
+      return valueIfTooLarge;
+    }
+    Nullness result = values.get(expr);
+    if (result == null && !values.containsKey(expr)) {
+      result = analysis.getValue(expr);
+      values.put(expr, result);
+    }
+    return result;
+  }
+}
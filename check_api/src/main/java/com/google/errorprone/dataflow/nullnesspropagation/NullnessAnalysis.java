@@ -16,10 +16,15 @@
 
 package com.google.errorprone.dataflow.nullnesspropagation;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.google.errorprone.dataflow.DataFlow;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.Tree;
 import com.sun.source.util.TreePath;
 import com.sun.tools.javac.util.Context;
 import java.io.Serializable;
+import javax.annotation.Nullable;
 
 /**
  * An interface to the nullness analysis.
@@ -54,13 +59,37 @@ public final class NullnessAnalysis implements Serializable {
    * <p>If the leaf required the compiler to generate autoboxing or autounboxing calls,
    * {@code getNullness} returns the {@code Nullness} <i>after</i> the boxing/unboxing. This implies
    * that, in those cases, it will always return {@code NONNULL}.
+   *
+   * <p>If the enclosing method exceeds the dataflow limits set in the {@link
+   * com.google.errorprone.ErrorProneOptions}, returns {@code NULLABLE} without running the
+   * analysis.
    */
   public Nullness getNullness(TreePath exprPath, Context context) {
-    try {
-      nullnessPropagation.setContext(context).setCompilationUnit(exprPath.getCompilationUnit());
-      return DataFlow.expressionDataflow(exprPath, context, nullnessPropagation);
-    } finally {
-      nullnessPropagation.setContext(null).setCompilationUnit(null);
+    Tree leaf = exprPath.getLeaf();
+    checkArgument(
+        leaf instanceof ExpressionTree,
+        "Leaf of exprPath must be of type ExpressionTree, but was %s",
+        leaf.getClass().getName());
+    MethodNullness method = getMethodNullness(exprPath, context);
+    return method == null ? null : method.getNullness((ExpressionTree) leaf);
+  }
+
+  /**
+   * Returns the {@link Nullness} of the expressions in the method or lambda enclosing the leaf of
+   * {@code path}, or null if the leaf is not part of a method or lambda that can be analyzed. The
+   * result for the most recently requested method is reused until a different method is requested,
+   * and is released along with {@link DataFlow}'s caches for the compilation unit.
+   */
+  @Nullable
+  public MethodNullness getMethodNullness(TreePath path, Context context) {
+    MethodNullness result =
+        (MethodNullness) DataFlow.getCompilationUnitState(this, path.getCompilationUnit());
+    if (result == null || !result.isFor(path)) {
+      result = MethodNullness.create(path, context, nullnessPropagation);
+      if (result != null) {
+        DataFlow.putCompilationUnitState(this, path.getCompilationUnit(), result);
+      }
     }
+    return result;
   }
 }
@@ -61,8 +61,10 @@ import java.math.BigInteger;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -207,6 +209,20 @@ class NullnessPropagationTransfer extends AbstractNullnessPropagationTransfer
 
   private final transient Set<VarSymbol> traversed = new HashSet<>();
 
+  /**
+   * The nullness of the initializers of the static final fields of {@link
+   * #cachedCompilationUnit}, or null if it isn't available. Only results that don't depend on
+   * which field's initializer the analysis started from are cached, see {@link
+   * #fieldInitializerNullnessIfAvailable}.
+   */
+  private final transient Map<VarSymbol, Nullness> fieldInitializerNullness = new HashMap<>();
+
+  /** The compilation unit that {@link #fieldInitializerNullness} belongs to. */
+  private transient CompilationUnitTree cachedCompilationUnit;
+
+  /** The number of circular dependencies between initializers found so far. */
+  private transient int initializerCycles;
+
   private final Nullness defaultAssumption;
   private final Predicate<MethodInfo> methodReturnsNonNull;
 
@@ -249,6 +265,11 @@ class NullnessPropagationTransfer extends AbstractNullnessPropagationTransfer
     this.methodReturnsNonNull = methodReturnsNonNull;
   }
 
+  /** The nullness assumed for values this transfer function knows nothing about. */
+  Nullness defaultAssumption() {
+    return defaultAssumption;
+  }
+
   /**
    * Stores the given Javac context to find and analyze field initializers. Set before analyzing a
    * method and reset after.
@@ -271,6 +292,10 @@ class NullnessPropagationTransfer extends AbstractNullnessPropagationTransfer
    */
   NullnessPropagationTransfer setCompilationUnit(@Nullable CompilationUnitTree compilationUnit) {
     this.compilationUnit = compilationUnit;
+    if (compilationUnit != null && compilationUnit != cachedCompilationUnit) {
+      fieldInitializerNullness.clear();
+      cachedCompilationUnit = compilationUnit;
+    }
     return this;
   }
 
@@ -638,15 +663,41 @@ class NullnessPropagationTransfer extends AbstractNullnessPropagationTransfer
     return methodReturnsNonNull.apply(callee) ? NONNULL : NULLABLE;
   }
 
+  /**
+   * Returns the nullness of the initializer of a static final field, computing it at most once per
+   * compilation unit.
+   *
+   * <p>A field whose initializer depends on itself is treated as null where the cycle is found, so
+   * the result computed for a field on such a cycle depends on where the analysis started. Results
+   * are therefore only cached if no cycle was found while computing them.
+   */
   @Nullable
   private Nullness fieldInitializerNullnessIfAvailable(ClassAndField accessed) {
-    if (!traversed.add(accessed.symbol)) {
+    if (compilationUnit == null) {
+      // Initializers are only analyzed within the current compilation unit.
+      return null;
+    }
+    if (fieldInitializerNullness.containsKey(accessed.symbol)) {
+      return fieldInitializerNullness.get(accessed.symbol);
+    }
+    if (traversed.contains(accessed.symbol)) {
       // Circular dependency between initializers results in null.  Note static fields can also be
       // null if they're observed before initialized, but we're ignoring that case for simplicity.
       // TODO(kmb): Try to recognize problems with initialization order
+      initializerCycles++;
       return NULL;
     }
+    int cyclesBefore = initializerCycles;
+    Nullness result = computeFieldInitializerNullness(accessed);
+    if (initializerCycles == cyclesBefore) {
+      fieldInitializerNullness.put(accessed.symbol, result);
+    }
+    return result;
+  }
 
+  @Nullable
+  private Nullness computeFieldInitializerNullness(ClassAndField accessed) {
+    traversed.add(accessed.symbol);
     try {
       JavacProcessingEnvironment javacEnv = JavacProcessingEnvironment.instance(context);
       TreePath fieldDeclPath = Trees.instance(javacEnv).getPath(accessed.symbol);
@@ -16,12 +16,11 @@
 
 package com.google.errorprone.fixes;
 
+import com.google.errorprone.util.LineOffsets;
 import com.sun.tools.javac.tree.EndPosTable;
-import java.io.IOException;
-import java.io.LineNumberReader;
-import java.io.StringReader;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Represents the corrected source which we think was intended, by applying a Fix. This
@@ -49,6 +48,8 @@ public class AppliedFix {
   public static class Applier {
     private final CharSequence source;
     private final EndPosTable endPositions;
+    // created on first use, and shared by every fix applied to the source
+    private LineOffsets lineOffsets;
 
     public Applier(CharSequence source, EndPosTable endPositions) {
       this.source = source;
@@ -60,53 +61,64 @@ public class AppliedFix {
      * change to the source, or a change only to imports.
      */
     public AppliedFix apply(Fix suggestedFix) {
-      StringBuilder replaced = new StringBuilder(source);
-
-      Set<Integer> modifiedLines = new HashSet<>();
-      for (Replacement repl : suggestedFix.getReplacements(endPositions)) {
-        replaced.replace(repl.startPosition(), repl.endPosition(), repl.replaceWith());
+      List<Replacement> replacements = new ArrayList<>(suggestedFix.getReplacements(endPositions));
+      // Not sure this is really the right behavior, but otherwise there is no line to show.
+      if (replacements.isEmpty()) {
+        return null;
+      }
+      replacements.sort(Comparator.comparingInt(Replacement::startPosition));
+      if (lineOffsets == null) {
+        lineOffsets = LineOffsets.of(source);
+      }
 
-        // Find the line number(s) being modified
-        // TODO: this could be more efficient
-        try {
-          LineNumberReader lineNumberReader =
-              new LineNumberReader(new StringReader(source.toString()));
-          lineNumberReader.skip(repl.startPosition());
-          modifiedLines.add(lineNumberReader.getLineNumber());
-        } catch (IOException e) {
-          // impossible since source is in-memory
+      // Rebuild the first modified line of the fixed source, up to its line terminator, which
+      // may come from the source or from a replacement.
+      int firstLine = lineOffsets.lineNumber(replacements.get(0).startPosition());
+      int position = lineOffsets.lineStart(firstLine);
+      StringBuilder line = new StringBuilder();
+      boolean complete = false;
+      for (Replacement replacement : replacements) {
+        String replaceWith = replacement.replaceWith();
+        complete =
+            appendLine(line, source, position, replacement.startPosition())
+                || appendLine(line, replaceWith, 0, replaceWith.length());
+        if (complete) {
+          break;
         }
+        position = replacement.endPosition();
       }
-
-      // Not sure this is really the right behavior, but otherwise we can end up with an infinite
-      // loop below.
-      if (modifiedLines.isEmpty()) {
-        return null;
+      if (!complete) {
+        appendLine(line, source, position, source.length());
       }
 
-      LineNumberReader lineNumberReader =
-              new LineNumberReader(new StringReader(replaced.toString()));
-      String snippet = null;
+      // TODO: this is over-simplified; need a failing test case
+      String snippet = line.toString().trim();
       boolean isRemoveLine = false;
-      try {
-        while(!modifiedLines.contains(lineNumberReader.getLineNumber())) {
-          lineNumberReader.readLine();
-        }
-        // TODO: this is over-simplified; need a failing test case
-        snippet = lineNumberReader.readLine().trim();
-        // snip comment from line
-        if (snippet.contains("//")) {
-          snippet = snippet.substring(0, snippet.indexOf("//")).trim();
-        }
-        if (snippet.isEmpty()) {
-          isRemoveLine = true;
-          snippet = "to remove this line";
-        }
-      } catch (IOException e) {
-        // impossible since source is in-memory
+      // snip comment from line
+      if (snippet.contains("//")) {
+        snippet = snippet.substring(0, snippet.indexOf("//")).trim();
+      }
+      if (snippet.isEmpty()) {
+        isRemoveLine = true;
+        snippet = "to remove this line";
       }
       return new AppliedFix(snippet, isRemoveLine);
     }
+
+    /**
+     * Appends the characters of {@code text} from {@code start} to {@code end} to {@code line},
+     * stopping at a line terminator, and returns whether one was found.
+     */
+    private static boolean appendLine(StringBuilder line, CharSequence text, int start, int end) {
+      for (int i = start; i < end; i++) {
+        char c = text.charAt(i);
+        if (c == '\n' || c == '\r') {
+          return true;
+        }
+        line.append(c);
+      }
+      return false;
+    }
   }
 
   public static Applier fromSource(CharSequence source, EndPosTable endPositions) {
@@ -92,6 +92,11 @@ public class Replacements {
     return new LinkedHashSet<>(replacements.values());
   }
 
+  /** Non-overlapping replacements, sorted in ascending order by position. */
+  public Set<Replacement> ascending() {
+    return new LinkedHashSet<>(replacements.descendingMap().values());
+  }
+
   public boolean isEmpty() {
     return replacements.isEmpty();
   }
@@ -17,6 +17,7 @@
 package com.google.errorprone.matchers.method;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.annotations.ForOverride;
 import com.sun.source.tree.ExpressionTree;
@@ -32,8 +33,26 @@ abstract class AbstractChainedMatcher<A, B> extends AbstractSimpleMatcher<B> {
   @ForOverride
   protected abstract Optional<B> matchResult(ExpressionTree item, A baseResult, VisitorState state);
 
+  /**
+   * Returns false if {@code item} can be rejected without evaluating the base matcher. Matchers
+   * that can reject items cheaply override this so that the expensive steps earlier in the chain,
+   * such as resolving and comparing the owner type, are skipped.
+   */
+  @ForOverride
+  protected boolean mayMatch(ExpressionTree item, VisitorState state) {
+    return true;
+  }
+
+  @Override
+  Optional<ImmutableSet<String>> methodNames() {
+    return baseMatcher.methodNames();
+  }
+
   @Override
   protected final Optional<B> matchResult(ExpressionTree item, VisitorState state) {
+    if (!mayMatch(item, state)) {
+      return Optional.absent();
+    }
     Optional<A> baseResult = baseMatcher.matchResult(item, state);
     return baseResult.isPresent()
         ? matchResult(item, baseResult.get(), state)
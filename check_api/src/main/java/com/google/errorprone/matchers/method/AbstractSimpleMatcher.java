@@ -17,6 +17,7 @@
 package com.google.errorprone.matchers.method;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.matchers.Matcher;
 import com.sun.source.tree.ExpressionTree;
@@ -25,6 +26,14 @@ import com.sun.source.tree.ExpressionTree;
 abstract class AbstractSimpleMatcher<T> implements Matcher<ExpressionTree> {
   protected abstract Optional<T> matchResult(ExpressionTree item, VisitorState state);
 
+  /**
+   * Returns the simple names of all methods this matcher can match, or an absent value if it may
+   * match methods with any name. Constructors are named {@code <init>}.
+   */
+  Optional<ImmutableSet<String>> methodNames() {
+    return Optional.absent();
+  }
+
   @Override
   public final boolean matches(ExpressionTree tree, VisitorState state) {
     return matchResult(tree, state).isPresent();
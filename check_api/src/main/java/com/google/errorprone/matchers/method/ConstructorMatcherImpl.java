@@ -17,14 +17,13 @@
 package com.google.errorprone.matchers.method;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.matchers.method.MethodMatchers.ConstructorClassMatcher;
 import com.google.errorprone.matchers.method.MethodMatchers.ConstructorMatcher;
 import com.google.errorprone.predicates.TypePredicates;
 import com.google.errorprone.suppliers.Supplier;
-import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
-import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Type;
 
@@ -34,14 +33,19 @@ public class ConstructorMatcherImpl extends AbstractSimpleMatcher<MatchState>
 
   @Override
   protected Optional<MatchState> matchResult(ExpressionTree tree, VisitorState state) {
-    MethodSymbol sym = getConstructor(tree);
+    MethodSymbol sym = getConstructor(tree, state);
     if (sym == null) {
       return Optional.absent();
     }
     return Optional.of(MatchState.create(sym.owner.type, sym));
   }
 
-  private static MethodSymbol getConstructor(ExpressionTree tree) {
+  @Override
+  Optional<ImmutableSet<String>> methodNames() {
+    return Optional.of(ImmutableSet.of("<init>"));
+  }
+
+  private static MethodSymbol getConstructor(ExpressionTree tree, VisitorState state) {
     switch (tree.getKind()) {
       case NEW_CLASS:
       case METHOD_INVOCATION:
@@ -49,12 +53,8 @@ public class ConstructorMatcherImpl extends AbstractSimpleMatcher<MatchState>
       default:
         return null;
     }
-    Symbol sym = ASTHelpers.getSymbol(tree);
-    if (!(sym instanceof MethodSymbol)) {
-      return null;
-    }
-    MethodSymbol method = (MethodSymbol) sym;
-    if (!method.isConstructor()) {
+    MethodSymbol method = state.getInvocationFacts(tree).methodSymbol();
+    if (method == null || !method.isConstructor()) {
       return null;
     }
     return method;
@@ -18,11 +18,9 @@ package com.google.errorprone.matchers.method;
 
 import com.google.common.base.Optional;
 import com.google.errorprone.VisitorState;
-import com.google.errorprone.util.ASTHelpers;
+import com.google.errorprone.util.InvocationFacts;
 import com.sun.source.tree.ExpressionTree;
-import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.NewClassTree;
-import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 
 /** Base matcher for member methods. */
@@ -31,19 +29,16 @@ abstract class MethodMatcher extends AbstractChainedMatcher<MatchState, MatchSta
       new AbstractSimpleMatcher<MatchState>() {
         @Override
         public Optional<MatchState> matchResult(ExpressionTree tree, VisitorState state) {
-          Symbol sym = ASTHelpers.getSymbol(tree);
-          if (!(sym instanceof MethodSymbol)) {
-            return Optional.absent();
-          }
           if (tree instanceof NewClassTree) {
             // Don't match constructors as they are neither static nor instance methods.
             return Optional.absent();
           }
-          if (tree instanceof MethodInvocationTree) {
-            tree = ((MethodInvocationTree) tree).getMethodSelect();
+          InvocationFacts facts = state.getInvocationFacts(tree);
+          MethodSymbol sym = facts.methodSymbol();
+          if (sym == null) {
+            return Optional.absent();
           }
-          return Optional.of(
-              MatchState.create(ASTHelpers.getReceiverType(tree), (MethodSymbol) sym));
+          return Optional.of(MatchState.create(facts.receiverType(), sym));
         }
       };
 
@@ -16,6 +16,8 @@
 
 package com.google.errorprone.matchers.method;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.predicates.TypePredicate;
 import com.google.errorprone.suppliers.Supplier;
@@ -145,4 +147,27 @@ public class MethodMatchers {
   public static ConstructorMatcher constructor() {
     return new ConstructorMatcherImpl();
   }
+
+  /**
+   * Returns the simple names of all the methods that the given matchers can match, or an absent
+   * value if any of them is not a method matcher chain that restricts the method name (for
+   * example, {@code instanceMethod().anyClass().withAnyName()}). Constructors are named {@code
+   * <init>}.
+   */
+  public static Optional<ImmutableSet<String>> methodNames(
+      Iterable<? extends Matcher<ExpressionTree>> matchers) {
+    ImmutableSet.Builder<String> names = ImmutableSet.builder();
+    for (Matcher<ExpressionTree> matcher : matchers) {
+      if (!(matcher instanceof AbstractSimpleMatcher)) {
+        return Optional.absent();
+      }
+      Optional<ImmutableSet<String>> matcherNames =
+          ((AbstractSimpleMatcher<?>) matcher).methodNames();
+      if (!matcherNames.isPresent()) {
+        return Optional.absent();
+      }
+      names.addAll(matcherNames.get());
+    }
+    return Optional.of(names.build());
+  }
 }
@@ -17,6 +17,7 @@
 package com.google.errorprone.matchers.method;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.matchers.method.MethodMatchers.MethodNameMatcher;
 import com.google.errorprone.matchers.method.MethodMatchers.ParameterMatcher;
@@ -52,6 +53,18 @@ public abstract class MethodNameMatcherImpl extends AbstractChainedMatcher<Match
       this.name = name;
     }
 
+    @Override
+    protected boolean mayMatch(ExpressionTree item, VisitorState state) {
+      // Check the name before the owner type, which is much more expensive to match.
+      String methodName = state.getInvocationFacts(item).methodName();
+      return methodName == null || methodName.equals(name);
+    }
+
+    @Override
+    Optional<ImmutableSet<String>> methodNames() {
+      return Optional.of(ImmutableSet.of(name));
+    }
+
     @Override
     protected Optional<MatchState> matchResult(ExpressionTree item, MatchState method,
         VisitorState state) {
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.matchers.method;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.Type.ArrayType;
+import com.sun.tools.javac.code.TypeTag;
+import com.sun.tools.javac.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Canonical method signatures, in the format of {@code MethodSymbol#toString} (e.g. {@code
+ * <T>asList(T[])}), except that varargs parameters are always written as arrays.
+ *
+ * <p>Signatures are interned, and the signature of each {@link MethodSymbol} is computed once and
+ * cached for as long as the symbol is reachable.
+ */
+final class MethodSignature {
+
+  private static final Interner<String> INTERNER = Interners.newWeakInterner();
+
+  private static final Pattern COMMA = Pattern.compile("\\s*,\\s*");
+
+  private static final LoadingCache<MethodSymbol, String> SIGNATURES =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .build(
+              new CacheLoader<MethodSymbol, String>() {
+                @Override
+                public String load(MethodSymbol sym) {
+                  return INTERNER.intern(compute(sym));
+                }
+              });
+
+  private MethodSignature() {}
+
+  /**
+   * Parses a signature in the format of {@code MethodSymbol#toString}. Varargs parameters may be
+   * written either as {@code T...} or as {@code T[]}, and whitespace around commas is ignored.
+   */
+  static String parse(String signature) {
+    return INTERNER.intern(
+        COMMA.matcher(signature.trim()).replaceAll(",").replace("...", "[]"));
+  }
+
+  /** Returns the canonical signature of the given method. */
+  static String of(MethodSymbol sym) {
+    return SIGNATURES.getUnchecked(sym);
+  }
+
+  private static String compute(MethodSymbol sym) {
+    StringBuilder sb = new StringBuilder();
+    Type type = sym.type;
+    if (type != null && type.hasTag(TypeTag.FORALL)) {
+      sb.append('<').append(type.getTypeArguments()).append('>');
+    }
+    sb.append(sym.isConstructor() ? sym.owner.name : sym.name);
+    if (type == null) {
+      return sb.toString();
+    }
+    sb.append('(');
+    List<Type> params = type.getParameterTypes();
+    boolean varargs = (sym.flags() & Flags.VARARGS) != 0;
+    for (List<Type> l = params; l.nonEmpty(); l = l.tail) {
+      if (l != params) {
+        sb.append(',');
+      }
+      Type param = l.head;
+      if (varargs && l.tail.isEmpty() && param instanceof ArrayType) {
+        // ArrayType#toString may print varargs parameters as 'T...'
+        sb.append(((ArrayType) param).elemtype).append("[]");
+      } else {
+        sb.append(param);
+      }
+    }
+    return sb.append(')').toString();
+  }
+}
@@ -17,6 +17,7 @@
 package com.google.errorprone.matchers.method;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.matchers.method.MethodMatchers.MethodSignatureMatcher;
 import com.sun.source.tree.ExpressionTree;
@@ -26,19 +27,60 @@ public class MethodSignatureMatcherImpl extends AbstractChainedMatcher<MatchStat
     implements MethodSignatureMatcher {
   private final String methodName;
 
+  private final String simpleName;
+
+  /** The canonical form of {@code methodName}, see {@link MethodSignature}. */
+  private final String signature;
+
   MethodSignatureMatcherImpl(AbstractSimpleMatcher<MatchState> baseMatcher, String methodName) {
     super(baseMatcher);
     this.methodName = methodName;
+    this.simpleName = simpleName(methodName);
+    this.signature = MethodSignature.parse(methodName);
+  }
+
+  /**
+   * Returns the simple name from a signature in the format of {@code MethodSymbol#toString}, e.g.
+   * {@code asList} for {@code <T>asList(T...)}.
+   */
+  private static String simpleName(String signature) {
+    int start = 0;
+    if (signature.startsWith("<")) {
+      // skip the type parameters, which may themselves be generic
+      int depth = 0;
+      for (; start < signature.length(); start++) {
+        char c = signature.charAt(start);
+        if (c == '<') {
+          depth++;
+        } else if (c == '>' && --depth == 0) {
+          start++;
+          break;
+        }
+      }
+    }
+    int end = signature.indexOf('(', start);
+    return signature.substring(start, end == -1 ? signature.length() : end);
+  }
+
+  @Override
+  protected boolean mayMatch(ExpressionTree item, VisitorState state) {
+    // MethodSymbol#toString prints constructors with the name of their class, so only reject
+    // methods by name.
+    String name = state.getInvocationFacts(item).methodName();
+    return name == null || name.equals("<init>") || name.equals(simpleName);
+  }
+
+  @Override
+  Optional<ImmutableSet<String>> methodNames() {
+    return Optional.of(ImmutableSet.of(simpleName, "<init>"));
   }
 
   @Override
   protected Optional<MatchState> matchResult(ExpressionTree item, MatchState method,
       VisitorState state) {
-    // TODO(cushon): build a way to match signatures (including varargs ones!) that doesn't
-    // rely on MethodSymbol#toString().
     boolean matches =
         method.sym().getSimpleName().contentEquals(methodName)
-            || method.sym().toString().equals(methodName);
+            || MethodSignature.of(method.sym()).equals(signature);
     return matches ? Optional.of(method) : Optional.<MatchState>absent();
   }
 }
\ No newline at end of file
@@ -16,7 +16,10 @@
 
 package com.google.errorprone.scanner;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.BugPattern.Suppressibility;
@@ -54,6 +57,7 @@ import com.google.errorprone.bugpatterns.BugChecker.LambdaExpressionTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.LiteralTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.MemberReferenceTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.MemberSelectTreeMatcher;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationCandidates;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.MethodTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.ModifiersTreeMatcher;
@@ -74,7 +78,9 @@ import com.google.errorprone.bugpatterns.BugChecker.UnionTypeTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.VariableTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.WhileLoopTreeMatcher;
 import com.google.errorprone.bugpatterns.BugChecker.WildcardTreeMatcher;
+import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Suppressible;
+import com.google.errorprone.matchers.method.MethodMatchers;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.AnnotatedTypeTree;
 import com.sun.source.tree.AnnotationTree;
@@ -119,6 +125,7 @@ import com.sun.source.tree.ReturnTree;
 import com.sun.source.tree.SwitchTree;
 import com.sun.source.tree.SynchronizedTree;
 import com.sun.source.tree.ThrowTree;
+import com.sun.source.tree.Tree;
 import com.sun.source.tree.TryTree;
 import com.sun.source.tree.TypeCastTree;
 import com.sun.source.tree.TypeParameterTree;
@@ -132,6 +139,8 @@ import com.sun.tools.javac.util.JCDiagnostic.DiagnosticPosition;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -183,9 +192,22 @@ public class ErrorProneScanner extends Scanner {
    */
   public ErrorProneScanner(Iterable<BugChecker> checkers, Map<String, SeverityLevel> severities) {
     this.severities = severities;
+    Map<Tree.Kind, List<MatcherEntry>> entries = new EnumMap<>(Tree.Kind.class);
+    Map<String, List<MatcherEntry>> invocationEntriesByName = new HashMap<>();
     for (BugChecker checker : checkers) {
-      registerNodeTypes(checker);
+      registerNodeTypes(checker, entries, invocationEntriesByName);
     }
+    for (Tree.Kind kind : Tree.Kind.values()) {
+      List<MatcherEntry> forKind = entries.get(kind);
+      matchers.put(
+          kind, forKind == null ? NO_MATCHERS : forKind.toArray(new MatcherEntry[forKind.size()]));
+    }
+    ImmutableMap.Builder<String, MatcherEntry[]> byName = ImmutableMap.builder();
+    for (Map.Entry<String, List<MatcherEntry>> forName : invocationEntriesByName.entrySet()) {
+      List<MatcherEntry> candidates = forName.getValue();
+      byName.put(forName.getKey(), candidates.toArray(new MatcherEntry[candidates.size()]));
+    }
+    this.invocationMatchersByName = byName.build();
   }
 
   @Override
@@ -193,734 +215,829 @@ public class ErrorProneScanner extends Scanner {
     return customSuppressionAnnotations;
   }
 
-  private final List<AnnotationTreeMatcher> annotationMatchers =
-      new ArrayList<>();
-  private final List<AnnotatedTypeTreeMatcher> annotatedTypeMatchers =
-      new ArrayList<>();
-  private final List<ArrayAccessTreeMatcher> arrayAccessMatchers =
-      new ArrayList<>();
-  private final List<ArrayTypeTreeMatcher> arrayTypeMatchers =
-      new ArrayList<>();
-  private final List<AssertTreeMatcher> assertMatchers =
-      new ArrayList<>();
-  private final List<AssignmentTreeMatcher> assignmentMatchers =
-      new ArrayList<>();
-  private final List<BinaryTreeMatcher> binaryMatchers =
-      new ArrayList<>();
-  private final List<BlockTreeMatcher> blockMatchers =
-      new ArrayList<>();
-  private final List<BreakTreeMatcher> breakMatchers =
-      new ArrayList<>();
-  private final List<CaseTreeMatcher> caseMatchers =
-      new ArrayList<>();
-  private final List<CatchTreeMatcher> catchMatchers =
-      new ArrayList<>();
-  private final List<ClassTreeMatcher> classMatchers =
-      new ArrayList<>();
-  private final List<CompilationUnitTreeMatcher> compilationUnitMatchers =
-      new ArrayList<>();
-  private final List<CompoundAssignmentTreeMatcher> compoundAssignmentMatchers =
-      new ArrayList<>();
-  private final List<ConditionalExpressionTreeMatcher> conditionalExpressionMatchers =
-      new ArrayList<>();
-  private final List<ContinueTreeMatcher> continueMatchers =
-      new ArrayList<>();
-  private final List<DoWhileLoopTreeMatcher> doWhileLoopMatchers =
-      new ArrayList<>();
-  private final List<EmptyStatementTreeMatcher> emptyStatementMatchers =
-      new ArrayList<>();
-  private final List<EnhancedForLoopTreeMatcher> enhancedForLoopMatchers =
-      new ArrayList<>();
-  private final List<ExpressionStatementTreeMatcher> expressionStatementMatchers =
-      new ArrayList<>();
-  private final List<ForLoopTreeMatcher> forLoopMatchers =
-      new ArrayList<>();
-  private final List<IdentifierTreeMatcher> identifierMatchers =
-      new ArrayList<>();
-  private final List<IfTreeMatcher> ifMatchers =
-      new ArrayList<>();
-  private final List<ImportTreeMatcher> importMatchers =
-      new ArrayList<>();
-  private final List<InstanceOfTreeMatcher> instanceOfMatchers =
-      new ArrayList<>();
-  private final List<IntersectionTypeTreeMatcher> intersectionTypeMatchers =
-      new ArrayList<>();
-  private final List<LabeledStatementTreeMatcher> labeledStatementMatchers =
-      new ArrayList<>();
-  private final List<LambdaExpressionTreeMatcher> lambdaExpressionMatchers =
-      new ArrayList<>();
-  private final List<LiteralTreeMatcher> literalMatchers =
-      new ArrayList<>();
-  private final List<MemberReferenceTreeMatcher> memberReferenceMatchers =
-      new ArrayList<>();
-  private final List<MemberSelectTreeMatcher> memberSelectMatchers =
-      new ArrayList<>();
-  private final List<MethodTreeMatcher> methodMatchers =
-      new ArrayList<>();
-  private final List<MethodInvocationTreeMatcher> methodInvocationMatchers =
-      new ArrayList<>();
-  private final List<ModifiersTreeMatcher> modifiersMatchers =
-      new ArrayList<>();
-  private final List<NewArrayTreeMatcher> newArrayMatchers =
-      new ArrayList<>();
-  private final List<NewClassTreeMatcher> newClassMatchers =
-      new ArrayList<>();
-  private final List<ParameterizedTypeTreeMatcher> parameterizedTypeMatchers =
-      new ArrayList<>();
-  private final List<ParenthesizedTreeMatcher> parenthesizedMatchers =
-      new ArrayList<>();
-  private final List<PrimitiveTypeTreeMatcher> primitiveTypeMatchers =
-      new ArrayList<>();
-  private final List<ReturnTreeMatcher> returnMatchers =
-      new ArrayList<>();
-  private final List<SwitchTreeMatcher> switchMatchers =
-      new ArrayList<>();
-  private final List<SynchronizedTreeMatcher> synchronizedMatchers =
-      new ArrayList<>();
-  private final List<ThrowTreeMatcher> throwMatchers =
-      new ArrayList<>();
-  private final List<TryTreeMatcher> tryMatchers =
-      new ArrayList<>();
-  private final List<TypeCastTreeMatcher> typeCastMatchers =
-      new ArrayList<>();
-  private final List<TypeParameterTreeMatcher> typeParameterMatchers =
-      new ArrayList<>();
-  private final List<UnaryTreeMatcher> unaryMatchers =
-      new ArrayList<>();
-  private final List<UnionTypeTreeMatcher> unionTypeMatchers = new ArrayList<>();
-  private final List<VariableTreeMatcher> variableMatchers =
-      new ArrayList<>();
-  private final List<WhileLoopTreeMatcher> whileLoopMatchers =
-      new ArrayList<>();
-  private final List<WildcardTreeMatcher> wildcardMatchers =
-      new ArrayList<>();
-
-  private void registerNodeTypes(BugChecker checker) {
+  /** Adapts a {@code match*} method of one of the {@code *Matcher} interfaces to any tree. */
+  @FunctionalInterface
+  private interface TreeProcessor {
+    Description process(Tree tree, VisitorState state);
+  }
+
+  /**
+   * A checker that matches a particular kind of tree, along with everything about it that is
+   * needed on each visit: its names, how it can be suppressed, its index in the scanner's
+   * suppression state, and the {@code match*} method to invoke.
+   */
+  private static final class MatcherEntry implements Suppressible {
+    private final String canonicalName;
+    private final Set<String> allNames;
+    private final Suppressibility suppressibility;
+    private final Set<Class<? extends Annotation>> customSuppressionAnnotations;
+    private final int suppressionIndex;
+    private final TreeProcessor processor;
+
+    MatcherEntry(BugChecker checker, int suppressionIndex, TreeProcessor processor) {
+      this.canonicalName = checker.canonicalName();
+      this.allNames = checker.allNames();
+      this.suppressibility = checker.suppressibility();
+      this.customSuppressionAnnotations = checker.customSuppressionAnnotations();
+      this.suppressionIndex = suppressionIndex;
+      this.processor = processor;
+    }
+
+    @Override
+    public String canonicalName() {
+      return canonicalName;
+    }
+
+    @Override
+    public Set<String> allNames() {
+      return allNames;
+    }
+
+    @Override
+    public Suppressibility suppressibility() {
+      return suppressibility;
+    }
+
+    @Override
+    public Set<Class<? extends Annotation>> customSuppressionAnnotations() {
+      return customSuppressionAnnotations;
+    }
+  }
+
+  private static final MatcherEntry[] NO_MATCHERS = {};
+
+  /** The kinds of tree that each tree interface is used for, e.g. all binary operators. */
+  private static final ImmutableListMultimap<Class<? extends Tree>, Tree.Kind> KINDS_BY_INTERFACE =
+      kindsByInterface();
+
+  private static ImmutableListMultimap<Class<? extends Tree>, Tree.Kind> kindsByInterface() {
+    ImmutableListMultimap.Builder<Class<? extends Tree>, Tree.Kind> builder =
+        ImmutableListMultimap.builder();
+    for (Tree.Kind kind : Tree.Kind.values()) {
+      // Kind.OTHER has no corresponding interface
+      if (kind.asInterface() != null) {
+        builder.put(kind.asInterface(), kind);
+      }
+    }
+    return builder.build();
+  }
+
+  /** The matchers to run on each kind of tree, in the order the checkers were provided. */
+  private final Map<Tree.Kind, MatcherEntry[]> matchers = new EnumMap<>(Tree.Kind.class);
+
+  /**
+   * The {@link MethodInvocationCandidates} matchers, indexed by the simple names of the methods
+   * they can match. These are run in addition to {@code matchers} for method invocations.
+   */
+  private final ImmutableMap<String, MatcherEntry[]> invocationMatchersByName;
+
+  private static void register(
+      Map<Tree.Kind, List<MatcherEntry>> entries,
+      Class<? extends Tree> treeType,
+      BugChecker checker,
+      int suppressionIndex,
+      TreeProcessor processor) {
+    MatcherEntry entry = new MatcherEntry(checker, suppressionIndex, processor);
+    for (Tree.Kind kind : KINDS_BY_INTERFACE.get(treeType)) {
+      entries.computeIfAbsent(kind, k -> new ArrayList<>()).add(entry);
+    }
+  }
+
+  private void registerNodeTypes(
+      BugChecker checker,
+      Map<Tree.Kind, List<MatcherEntry>> entries,
+      Map<String, List<MatcherEntry>> invocationEntriesByName) {
     if (checker.suppressibility() == Suppressibility.CUSTOM_ANNOTATION) {
       customSuppressionAnnotations.addAll(checker.customSuppressionAnnotations());
     }
+    int suppressionIndex = registerSuppressible(checker, severities.get(checker.canonicalName()));
 
     if (checker instanceof AnnotationTreeMatcher) {
-      annotationMatchers.add((AnnotationTreeMatcher) checker);
+      AnnotationTreeMatcher matcher = (AnnotationTreeMatcher) checker;
+      register(
+          entries,
+          AnnotationTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchAnnotation((AnnotationTree) t, s));
     }
     if (checker instanceof AnnotatedTypeTreeMatcher) {
-      annotatedTypeMatchers.add((AnnotatedTypeTreeMatcher) checker);
+      AnnotatedTypeTreeMatcher matcher = (AnnotatedTypeTreeMatcher) checker;
+      register(
+          entries,
+          AnnotatedTypeTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchAnnotatedType((AnnotatedTypeTree) t, s));
     }
     if (checker instanceof ArrayAccessTreeMatcher) {
-      arrayAccessMatchers.add((ArrayAccessTreeMatcher) checker);
+      ArrayAccessTreeMatcher matcher = (ArrayAccessTreeMatcher) checker;
+      register(
+          entries,
+          ArrayAccessTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchArrayAccess((ArrayAccessTree) t, s));
     }
     if (checker instanceof ArrayTypeTreeMatcher) {
-      arrayTypeMatchers.add((ArrayTypeTreeMatcher) checker);
+      ArrayTypeTreeMatcher matcher = (ArrayTypeTreeMatcher) checker;
+      register(
+          entries,
+          ArrayTypeTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchArrayType((ArrayTypeTree) t, s));
     }
     if (checker instanceof AssertTreeMatcher) {
-      assertMatchers.add((AssertTreeMatcher) checker);
+      AssertTreeMatcher matcher = (AssertTreeMatcher) checker;
+      register(
+          entries,
+          AssertTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchAssert((AssertTree) t, s));
     }
     if (checker instanceof AssignmentTreeMatcher) {
-      assignmentMatchers.add((AssignmentTreeMatcher) checker);
+      AssignmentTreeMatcher matcher = (AssignmentTreeMatcher) checker;
+      register(
+          entries,
+          AssignmentTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchAssignment((AssignmentTree) t, s));
     }
     if (checker instanceof BinaryTreeMatcher) {
-      binaryMatchers.add((BinaryTreeMatcher) checker);
+      BinaryTreeMatcher matcher = (BinaryTreeMatcher) checker;
+      register(
+          entries,
+          BinaryTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchBinary((BinaryTree) t, s));
     }
     if (checker instanceof BlockTreeMatcher) {
-      blockMatchers.add((BlockTreeMatcher) checker);
+      BlockTreeMatcher matcher = (BlockTreeMatcher) checker;
+      register(
+          entries,
+          BlockTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchBlock((BlockTree) t, s));
     }
     if (checker instanceof BreakTreeMatcher) {
-      breakMatchers.add((BreakTreeMatcher) checker);
+      BreakTreeMatcher matcher = (BreakTreeMatcher) checker;
+      register(
+          entries,
+          BreakTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchBreak((BreakTree) t, s));
     }
     if (checker instanceof CaseTreeMatcher) {
-      caseMatchers.add((CaseTreeMatcher) checker);
+      CaseTreeMatcher matcher = (CaseTreeMatcher) checker;
+      register(
+          entries,
+          CaseTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchCase((CaseTree) t, s));
     }
     if (checker instanceof CatchTreeMatcher) {
-      catchMatchers.add((CatchTreeMatcher) checker);
+      CatchTreeMatcher matcher = (CatchTreeMatcher) checker;
+      register(
+          entries,
+          CatchTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchCatch((CatchTree) t, s));
     }
     if (checker instanceof ClassTreeMatcher) {
-      classMatchers.add((ClassTreeMatcher) checker);
+      ClassTreeMatcher matcher = (ClassTreeMatcher) checker;
+      register(
+          entries,
+          ClassTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchClass((ClassTree) t, s));
     }
     if (checker instanceof CompilationUnitTreeMatcher) {
-      compilationUnitMatchers.add((CompilationUnitTreeMatcher) checker);
+      CompilationUnitTreeMatcher matcher = (CompilationUnitTreeMatcher) checker;
+      register(
+          entries,
+          CompilationUnitTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchCompilationUnit((CompilationUnitTree) t, s));
     }
     if (checker instanceof CompoundAssignmentTreeMatcher) {
-      compoundAssignmentMatchers.add((CompoundAssignmentTreeMatcher) checker);
+      CompoundAssignmentTreeMatcher matcher = (CompoundAssignmentTreeMatcher) checker;
+      register(
+          entries,
+          CompoundAssignmentTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchCompoundAssignment((CompoundAssignmentTree) t, s));
     }
     if (checker instanceof ConditionalExpressionTreeMatcher) {
-      conditionalExpressionMatchers.add((ConditionalExpressionTreeMatcher) checker);
+      ConditionalExpressionTreeMatcher matcher = (ConditionalExpressionTreeMatcher) checker;
+      register(
+          entries,
+          ConditionalExpressionTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchConditionalExpression((ConditionalExpressionTree) t, s));
     }
     if (checker instanceof ContinueTreeMatcher) {
-      continueMatchers.add((ContinueTreeMatcher) checker);
+      ContinueTreeMatcher matcher = (ContinueTreeMatcher) checker;
+      register(
+          entries,
+          ContinueTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchContinue((ContinueTree) t, s));
     }
     if (checker instanceof DoWhileLoopTreeMatcher) {
-      doWhileLoopMatchers.add((DoWhileLoopTreeMatcher) checker);
+      DoWhileLoopTreeMatcher matcher = (DoWhileLoopTreeMatcher) checker;
+      register(
+          entries,
+          DoWhileLoopTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchDoWhileLoop((DoWhileLoopTree) t, s));
     }
     if (checker instanceof EmptyStatementTreeMatcher) {
-      emptyStatementMatchers.add((EmptyStatementTreeMatcher) checker);
+      EmptyStatementTreeMatcher matcher = (EmptyStatementTreeMatcher) checker;
+      register(
+          entries,
+          EmptyStatementTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchEmptyStatement((EmptyStatementTree) t, s));
     }
     if (checker instanceof EnhancedForLoopTreeMatcher) {
-      enhancedForLoopMatchers.add((EnhancedForLoopTreeMatcher) checker);
+      EnhancedForLoopTreeMatcher matcher = (EnhancedForLoopTreeMatcher) checker;
+      register(
+          entries,
+          EnhancedForLoopTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchEnhancedForLoop((EnhancedForLoopTree) t, s));
     }
     if (checker instanceof ExpressionStatementTreeMatcher) {
-      expressionStatementMatchers.add((ExpressionStatementTreeMatcher) checker);
+      ExpressionStatementTreeMatcher matcher = (ExpressionStatementTreeMatcher) checker;
+      register(
+          entries,
+          ExpressionStatementTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchExpressionStatement((ExpressionStatementTree) t, s));
     }
     if (checker instanceof ForLoopTreeMatcher) {
-      forLoopMatchers.add((ForLoopTreeMatcher) checker);
+      ForLoopTreeMatcher matcher = (ForLoopTreeMatcher) checker;
+      register(
+          entries,
+          ForLoopTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchForLoop((ForLoopTree) t, s));
     }
     if (checker instanceof IdentifierTreeMatcher) {
-      identifierMatchers.add((IdentifierTreeMatcher) checker);
+      IdentifierTreeMatcher matcher = (IdentifierTreeMatcher) checker;
+      register(
+          entries,
+          IdentifierTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchIdentifier((IdentifierTree) t, s));
     }
     if (checker instanceof IfTreeMatcher) {
-      ifMatchers.add((IfTreeMatcher) checker);
+      IfTreeMatcher matcher = (IfTreeMatcher) checker;
+      register(
+          entries,
+          IfTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchIf((IfTree) t, s));
     }
     if (checker instanceof ImportTreeMatcher) {
-      importMatchers.add((ImportTreeMatcher) checker);
+      ImportTreeMatcher matcher = (ImportTreeMatcher) checker;
+      register(
+          entries,
+          ImportTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchImport((ImportTree) t, s));
     }
     if (checker instanceof InstanceOfTreeMatcher) {
-      instanceOfMatchers.add((InstanceOfTreeMatcher) checker);
+      InstanceOfTreeMatcher matcher = (InstanceOfTreeMatcher) checker;
+      register(
+          entries,
+          InstanceOfTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchInstanceOf((InstanceOfTree) t, s));
     }
     if (checker instanceof IntersectionTypeTreeMatcher) {
-      intersectionTypeMatchers.add((IntersectionTypeTreeMatcher) checker);
+      IntersectionTypeTreeMatcher matcher = (IntersectionTypeTreeMatcher) checker;
+      register(
+          entries,
+          IntersectionTypeTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchIntersectionType((IntersectionTypeTree) t, s));
     }
     if (checker instanceof LabeledStatementTreeMatcher) {
-      labeledStatementMatchers.add((LabeledStatementTreeMatcher) checker);
+      LabeledStatementTreeMatcher matcher = (LabeledStatementTreeMatcher) checker;
+      register(
+          entries,
+          LabeledStatementTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchLabeledStatement((LabeledStatementTree) t, s));
     }
     if (checker instanceof LambdaExpressionTreeMatcher) {
-      lambdaExpressionMatchers.add((LambdaExpressionTreeMatcher) checker);
+      LambdaExpressionTreeMatcher matcher = (LambdaExpressionTreeMatcher) checker;
+      register(
+          entries,
+          LambdaExpressionTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchLambdaExpression((LambdaExpressionTree) t, s));
     }
     if (checker instanceof LiteralTreeMatcher) {
-      literalMatchers.add((LiteralTreeMatcher) checker);
+      LiteralTreeMatcher matcher = (LiteralTreeMatcher) checker;
+      register(
+          entries,
+          LiteralTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchLiteral((LiteralTree) t, s));
     }
     if (checker instanceof MemberReferenceTreeMatcher) {
-      memberReferenceMatchers.add((MemberReferenceTreeMatcher) checker);
+      MemberReferenceTreeMatcher matcher = (MemberReferenceTreeMatcher) checker;
+      register(
+          entries,
+          MemberReferenceTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchMemberReference((MemberReferenceTree) t, s));
     }
     if (checker instanceof MemberSelectTreeMatcher) {
-      memberSelectMatchers.add((MemberSelectTreeMatcher) checker);
+      MemberSelectTreeMatcher matcher = (MemberSelectTreeMatcher) checker;
+      register(
+          entries,
+          MemberSelectTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchMemberSelect((MemberSelectTree) t, s));
     }
     if (checker instanceof MethodTreeMatcher) {
-      methodMatchers.add((MethodTreeMatcher) checker);
+      MethodTreeMatcher matcher = (MethodTreeMatcher) checker;
+      register(
+          entries,
+          MethodTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchMethod((MethodTree) t, s));
     }
     if (checker instanceof MethodInvocationTreeMatcher) {
-      methodInvocationMatchers.add((MethodInvocationTreeMatcher) checker);
+      MethodInvocationTreeMatcher matcher = (MethodInvocationTreeMatcher) checker;
+      TreeProcessor processor =
+          (t, s) -> matcher.matchMethodInvocation((MethodInvocationTree) t, s);
+      Optional<ImmutableSet<String>> names =
+          checker instanceof MethodInvocationCandidates
+              ? MethodMatchers.methodNames(
+                  ((MethodInvocationCandidates) checker).candidateMethodMatchers())
+              : Optional.<ImmutableSet<String>>absent();
+      // A checker with no candidates would never run, so it sees every invocation instead.
+      if (names.isPresent() && !names.get().isEmpty()) {
+        MatcherEntry entry = new MatcherEntry(checker, suppressionIndex, processor);
+        for (String name : names.get()) {
+          invocationEntriesByName.computeIfAbsent(name, n -> new ArrayList<>()).add(entry);
+        }
+      } else {
+        register(entries, MethodInvocationTree.class, checker, suppressionIndex, processor);
+      }
     }
     if (checker instanceof ModifiersTreeMatcher) {
-      modifiersMatchers.add((ModifiersTreeMatcher) checker);
+      ModifiersTreeMatcher matcher = (ModifiersTreeMatcher) checker;
+      register(
+          entries,
+          ModifiersTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchModifiers((ModifiersTree) t, s));
     }
     if (checker instanceof NewArrayTreeMatcher) {
-      newArrayMatchers.add((NewArrayTreeMatcher) checker);
+      NewArrayTreeMatcher matcher = (NewArrayTreeMatcher) checker;
+      register(
+          entries,
+          NewArrayTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchNewArray((NewArrayTree) t, s));
     }
     if (checker instanceof NewClassTreeMatcher) {
-      newClassMatchers.add((NewClassTreeMatcher) checker);
+      NewClassTreeMatcher matcher = (NewClassTreeMatcher) checker;
+      register(
+          entries,
+          NewClassTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchNewClass((NewClassTree) t, s));
     }
     if (checker instanceof ParameterizedTypeTreeMatcher) {
-      parameterizedTypeMatchers.add((ParameterizedTypeTreeMatcher) checker);
+      ParameterizedTypeTreeMatcher matcher = (ParameterizedTypeTreeMatcher) checker;
+      register(
+          entries,
+          ParameterizedTypeTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchParameterizedType((ParameterizedTypeTree) t, s));
     }
     if (checker instanceof ParenthesizedTreeMatcher) {
-      parenthesizedMatchers.add((ParenthesizedTreeMatcher) checker);
+      ParenthesizedTreeMatcher matcher = (ParenthesizedTreeMatcher) checker;
+      register(
+          entries,
+          ParenthesizedTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchParenthesized((ParenthesizedTree) t, s));
     }
     if (checker instanceof PrimitiveTypeTreeMatcher) {
-      primitiveTypeMatchers.add((PrimitiveTypeTreeMatcher) checker);
+      PrimitiveTypeTreeMatcher matcher = (PrimitiveTypeTreeMatcher) checker;
+      register(
+          entries,
+          PrimitiveTypeTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchPrimitiveType((PrimitiveTypeTree) t, s));
     }
     if (checker instanceof ReturnTreeMatcher) {
-      returnMatchers.add((ReturnTreeMatcher) checker);
+      ReturnTreeMatcher matcher = (ReturnTreeMatcher) checker;
+      register(
+          entries,
+          ReturnTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchReturn((ReturnTree) t, s));
     }
     if (checker instanceof SwitchTreeMatcher) {
-      switchMatchers.add((SwitchTreeMatcher) checker);
+      SwitchTreeMatcher matcher = (SwitchTreeMatcher) checker;
+      register(
+          entries,
+          SwitchTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchSwitch((SwitchTree) t, s));
     }
     if (checker instanceof SynchronizedTreeMatcher) {
-      synchronizedMatchers.add((SynchronizedTreeMatcher) checker);
+      SynchronizedTreeMatcher matcher = (SynchronizedTreeMatcher) checker;
+      register(
+          entries,
+          SynchronizedTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchSynchronized((SynchronizedTree) t, s));
     }
     if (checker instanceof ThrowTreeMatcher) {
-      throwMatchers.add((ThrowTreeMatcher) checker);
+      ThrowTreeMatcher matcher = (ThrowTreeMatcher) checker;
+      register(
+          entries,
+          ThrowTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchThrow((ThrowTree) t, s));
     }
     if (checker instanceof TryTreeMatcher) {
-      tryMatchers.add((TryTreeMatcher) checker);
+      TryTreeMatcher matcher = (TryTreeMatcher) checker;
+      register(
+          entries,
+          TryTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchTry((TryTree) t, s));
     }
     if (checker instanceof TypeCastTreeMatcher) {
-      typeCastMatchers.add((TypeCastTreeMatcher) checker);
+      TypeCastTreeMatcher matcher = (TypeCastTreeMatcher) checker;
+      register(
+          entries,
+          TypeCastTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchTypeCast((TypeCastTree) t, s));
     }
     if (checker instanceof TypeParameterTreeMatcher) {
-      typeParameterMatchers.add((TypeParameterTreeMatcher) checker);
+      TypeParameterTreeMatcher matcher = (TypeParameterTreeMatcher) checker;
+      register(
+          entries,
+          TypeParameterTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchTypeParameter((TypeParameterTree) t, s));
     }
     if (checker instanceof UnaryTreeMatcher) {
-      unaryMatchers.add((UnaryTreeMatcher) checker);
+      UnaryTreeMatcher matcher = (UnaryTreeMatcher) checker;
+      register(
+          entries,
+          UnaryTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchUnary((UnaryTree) t, s));
     }
     if (checker instanceof UnionTypeTreeMatcher) {
-      unionTypeMatchers.add((UnionTypeTreeMatcher) checker);
+      UnionTypeTreeMatcher matcher = (UnionTypeTreeMatcher) checker;
+      register(
+          entries,
+          UnionTypeTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchUnionType((UnionTypeTree) t, s));
     }
     if (checker instanceof VariableTreeMatcher) {
-      variableMatchers.add((VariableTreeMatcher) checker);
+      VariableTreeMatcher matcher = (VariableTreeMatcher) checker;
+      register(
+          entries,
+          VariableTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchVariable((VariableTree) t, s));
     }
     if (checker instanceof WhileLoopTreeMatcher) {
-      whileLoopMatchers.add((WhileLoopTreeMatcher) checker);
+      WhileLoopTreeMatcher matcher = (WhileLoopTreeMatcher) checker;
+      register(
+          entries,
+          WhileLoopTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchWhileLoop((WhileLoopTree) t, s));
     }
     if (checker instanceof WildcardTreeMatcher) {
-      wildcardMatchers.add((WildcardTreeMatcher) checker);
+      WildcardTreeMatcher matcher = (WildcardTreeMatcher) checker;
+      register(
+          entries,
+          WildcardTree.class,
+          checker,
+          suppressionIndex,
+          (t, s) -> matcher.matchWildcard((WildcardTree) t, s));
     }
   }
 
+  /**
+   * The profiler for the current compilation, or {@code null} if profiling was not requested.
+   */
+  private ScannerProfiler profiler;
+
   @Override
-  public Void visitAnnotation(AnnotationTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (AnnotationTreeMatcher matcher : annotationMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchAnnotation(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
+  public Void scan(TreePath path, VisitorState state) {
+    profiler = state.context.get(ScannerProfiler.class);
+    return super.scan(path, state);
+  }
+
+  /**
+   * Runs every unsuppressed matcher registered for the kind of {@code tree}, reporting the
+   * resulting descriptions.
+   *
+   * <p>The {@link VisitorState} for the current path is only created if at least one matcher
+   * runs, and is shared by all of them. The state passed down to the children of {@code tree}
+   * does not need to be updated, since each node creates its own state from {@link
+   * #getCurrentPath}.
+   */
+  private void processMatchers(Tree tree, VisitorState oldState) {
+    processMatchers(tree, matchers.get(tree.getKind()), oldState, null);
+  }
+
+  /**
+   * Runs every unsuppressed matcher in {@code entries} over {@code tree}.
+   *
+   * @param state the {@link VisitorState} for the current path, or {@code null} if it has not been
+   *     created yet
+   * @return the {@link VisitorState} for the current path, or {@code null} if no matcher ran and it
+   *     has not been created yet
+   */
+  private VisitorState processMatchers(
+      Tree tree, MatcherEntry[] entries, VisitorState oldState, VisitorState state) {
+    for (MatcherEntry matcher : entries) {
+      if (isSuppressed(matcher.suppressionIndex)) {
+        continue;
+      }
+      if (state == null) {
+        state = oldState.withPath(getCurrentPath());
+      }
+      try {
+        reportMatch(process(matcher, tree, state), tree, state);
+      } catch (Throwable t) {
+        handleError(matcher, t);
       }
     }
-    return super.visitAnnotation(tree, state);
+    return state;
+  }
+
+  private Description process(MatcherEntry matcher, Tree tree, VisitorState state) {
+    if (profiler == null) {
+      return matcher.processor.process(tree, state);
+    }
+    long startBytes = profiler.allocatedBytes();
+    long startNanos = System.nanoTime();
+    try {
+      return matcher.processor.process(tree, state);
+    } finally {
+      long elapsedNanos = System.nanoTime() - startNanos;
+      profiler.record(
+          matcher.canonicalName(),
+          tree.getKind(),
+          elapsedNanos,
+          profiler.allocatedBytes() - startBytes);
+    }
+  }
+
+  @Override
+  public Void visitAnnotation(AnnotationTree tree, VisitorState visitorState) {
+    processMatchers(tree, visitorState);
+    return super.visitAnnotation(tree, visitorState);
   }
 
   @Override
   public Void visitAnnotatedType(AnnotatedTypeTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (AnnotatedTypeTreeMatcher matcher : annotatedTypeMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchAnnotatedType(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitAnnotatedType(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitAnnotatedType(tree, visitorState);
   }
 
   @Override
   public Void visitArrayAccess(ArrayAccessTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ArrayAccessTreeMatcher matcher : arrayAccessMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchArrayAccess(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitArrayAccess(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitArrayAccess(tree, visitorState);
   }
 
   @Override
   public Void visitArrayType(ArrayTypeTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ArrayTypeTreeMatcher matcher : arrayTypeMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchArrayType(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitArrayType(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitArrayType(tree, visitorState);
   }
 
   @Override
   public Void visitAssert(AssertTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (AssertTreeMatcher matcher : assertMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchAssert(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitAssert(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitAssert(tree, visitorState);
   }
 
   @Override
   public Void visitAssignment(AssignmentTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (AssignmentTreeMatcher matcher : assignmentMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchAssignment(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitAssignment(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitAssignment(tree, visitorState);
   }
 
   @Override
   public Void visitBinary(BinaryTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (BinaryTreeMatcher matcher : binaryMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchBinary(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitBinary(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitBinary(tree, visitorState);
   }
 
   @Override
   public Void visitBlock(BlockTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (BlockTreeMatcher matcher : blockMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchBlock(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitBlock(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitBlock(tree, visitorState);
   }
 
   @Override
   public Void visitBreak(BreakTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (BreakTreeMatcher matcher : breakMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchBreak(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitBreak(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitBreak(tree, visitorState);
   }
 
   @Override
   public Void visitCase(CaseTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (CaseTreeMatcher matcher : caseMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchCase(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitCase(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitCase(tree, visitorState);
   }
 
   @Override
   public Void visitCatch(CatchTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (CatchTreeMatcher matcher : catchMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchCatch(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitCatch(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitCatch(tree, visitorState);
   }
 
   @Override
   public Void visitClass(ClassTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ClassTreeMatcher matcher : classMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchClass(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitClass(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitClass(tree, visitorState);
   }
 
   @Override
   public Void visitCompilationUnit(CompilationUnitTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (CompilationUnitTreeMatcher matcher : compilationUnitMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchCompilationUnit(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitCompilationUnit(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitCompilationUnit(tree, visitorState);
   }
 
   @Override
   public Void visitCompoundAssignment(CompoundAssignmentTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (CompoundAssignmentTreeMatcher matcher : compoundAssignmentMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchCompoundAssignment(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitCompoundAssignment(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitCompoundAssignment(tree, visitorState);
   }
 
   @Override
   public Void visitConditionalExpression(
       ConditionalExpressionTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ConditionalExpressionTreeMatcher matcher : conditionalExpressionMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchConditionalExpression(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitConditionalExpression(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitConditionalExpression(tree, visitorState);
   }
 
   @Override
   public Void visitContinue(ContinueTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ContinueTreeMatcher matcher : continueMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchContinue(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitContinue(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitContinue(tree, visitorState);
   }
 
   @Override
   public Void visitDoWhileLoop(DoWhileLoopTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (DoWhileLoopTreeMatcher matcher : doWhileLoopMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchDoWhileLoop(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitDoWhileLoop(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitDoWhileLoop(tree, visitorState);
   }
 
   @Override
   public Void visitEmptyStatement(EmptyStatementTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (EmptyStatementTreeMatcher matcher : emptyStatementMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchEmptyStatement(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitEmptyStatement(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitEmptyStatement(tree, visitorState);
   }
 
   @Override
   public Void visitEnhancedForLoop(EnhancedForLoopTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (EnhancedForLoopTreeMatcher matcher : enhancedForLoopMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchEnhancedForLoop(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitEnhancedForLoop(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitEnhancedForLoop(tree, visitorState);
   }
 
   // Intentionally skip visitErroneous -- we don't analyze malformed expressions.
 
   @Override
   public Void visitExpressionStatement(ExpressionStatementTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ExpressionStatementTreeMatcher matcher : expressionStatementMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchExpressionStatement(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitExpressionStatement(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitExpressionStatement(tree, visitorState);
   }
 
   @Override
   public Void visitForLoop(ForLoopTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ForLoopTreeMatcher matcher : forLoopMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchForLoop(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitForLoop(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitForLoop(tree, visitorState);
   }
 
   @Override
   public Void visitIdentifier(IdentifierTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (IdentifierTreeMatcher matcher : identifierMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchIdentifier(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitIdentifier(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitIdentifier(tree, visitorState);
   }
 
   @Override
   public Void visitIf(IfTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (IfTreeMatcher matcher : ifMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchIf(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitIf(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitIf(tree, visitorState);
   }
 
   @Override
   public Void visitImport(ImportTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ImportTreeMatcher matcher : importMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchImport(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitImport(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitImport(tree, visitorState);
   }
 
   @Override
   public Void visitInstanceOf(InstanceOfTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (InstanceOfTreeMatcher matcher : instanceOfMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchInstanceOf(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitInstanceOf(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitInstanceOf(tree, visitorState);
   }
 
   @Override
   public Void visitIntersectionType(IntersectionTypeTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (IntersectionTypeTreeMatcher matcher : intersectionTypeMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchIntersectionType(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitIntersectionType(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitIntersectionType(tree, visitorState);
   }
 
   @Override
   public Void visitLabeledStatement(LabeledStatementTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (LabeledStatementTreeMatcher matcher : labeledStatementMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchLabeledStatement(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitLabeledStatement(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitLabeledStatement(tree, visitorState);
   }
 
   @Override
   public Void visitLambdaExpression(LambdaExpressionTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (LambdaExpressionTreeMatcher matcher : lambdaExpressionMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchLambdaExpression(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitLambdaExpression(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitLambdaExpression(tree, visitorState);
   }
 
   @Override
   public Void visitLiteral(LiteralTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (LiteralTreeMatcher matcher : literalMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchLiteral(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitLiteral(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitLiteral(tree, visitorState);
   }
 
   @Override
   public Void visitMemberReference(MemberReferenceTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (MemberReferenceTreeMatcher matcher : memberReferenceMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchMemberReference(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitMemberReference(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitMemberReference(tree, visitorState);
   }
 
   @Override
   public Void visitMemberSelect(MemberSelectTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (MemberSelectTreeMatcher matcher : memberSelectMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchMemberSelect(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitMemberSelect(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitMemberSelect(tree, visitorState);
   }
 
   @Override
@@ -930,77 +1047,43 @@ public class ErrorProneScanner extends Scanner {
       return null;
     }
 
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (MethodTreeMatcher matcher : methodMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchMethod(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitMethod(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitMethod(tree, visitorState);
   }
 
   @Override
   public Void visitMethodInvocation(MethodInvocationTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (MethodInvocationTreeMatcher matcher : methodInvocationMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchMethodInvocation(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
+    VisitorState state =
+        processMatchers(tree, matchers.get(Tree.Kind.METHOD_INVOCATION), visitorState, null);
+    if (!invocationMatchersByName.isEmpty()) {
+      if (state == null) {
+        state = visitorState.withPath(getCurrentPath());
+      }
+      String name = state.getInvocationFacts(tree).methodName();
+      MatcherEntry[] candidates = name != null ? invocationMatchersByName.get(name) : null;
+      if (candidates != null) {
+        processMatchers(tree, candidates, visitorState, state);
       }
     }
-    return super.visitMethodInvocation(tree, state);
+    return super.visitMethodInvocation(tree, visitorState);
   }
 
   @Override
   public Void visitModifiers(ModifiersTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ModifiersTreeMatcher matcher : modifiersMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchModifiers(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitModifiers(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitModifiers(tree, visitorState);
   }
 
   @Override
   public Void visitNewArray(NewArrayTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (NewArrayTreeMatcher matcher : newArrayMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchNewArray(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitNewArray(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitNewArray(tree, visitorState);
   }
 
   @Override
   public Void visitNewClass(NewClassTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (NewClassTreeMatcher matcher : newClassMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchNewClass(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitNewClass(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitNewClass(tree, visitorState);
   }
 
   // Intentionally skip visitOther. It seems to be used only for let expressions, which are
@@ -1008,227 +1091,92 @@ public class ErrorProneScanner extends Scanner {
 
   @Override
   public Void visitParameterizedType(ParameterizedTypeTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ParameterizedTypeTreeMatcher matcher : parameterizedTypeMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchParameterizedType(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitParameterizedType(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitParameterizedType(tree, visitorState);
   }
 
   @Override
   public Void visitParenthesized(ParenthesizedTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ParenthesizedTreeMatcher matcher : parenthesizedMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchParenthesized(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitParenthesized(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitParenthesized(tree, visitorState);
   }
 
   @Override
   public Void visitPrimitiveType(PrimitiveTypeTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (PrimitiveTypeTreeMatcher matcher : primitiveTypeMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchPrimitiveType(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitPrimitiveType(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitPrimitiveType(tree, visitorState);
   }
 
   @Override
   public Void visitReturn(ReturnTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ReturnTreeMatcher matcher : returnMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchReturn(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitReturn(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitReturn(tree, visitorState);
   }
 
   @Override
   public Void visitSwitch(SwitchTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (SwitchTreeMatcher matcher : switchMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchSwitch(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitSwitch(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitSwitch(tree, visitorState);
   }
 
   @Override
   public Void visitSynchronized(SynchronizedTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (SynchronizedTreeMatcher matcher : synchronizedMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchSynchronized(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitSynchronized(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitSynchronized(tree, visitorState);
   }
 
   @Override
   public Void visitThrow(ThrowTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (ThrowTreeMatcher matcher : throwMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchThrow(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitThrow(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitThrow(tree, visitorState);
   }
 
   @Override
   public Void visitTry(TryTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (TryTreeMatcher matcher : tryMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchTry(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitTry(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitTry(tree, visitorState);
   }
 
   @Override
   public Void visitTypeCast(TypeCastTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (TypeCastTreeMatcher matcher : typeCastMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchTypeCast(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitTypeCast(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitTypeCast(tree, visitorState);
   }
 
   @Override
   public Void visitTypeParameter(TypeParameterTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (TypeParameterTreeMatcher matcher : typeParameterMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchTypeParameter(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitTypeParameter(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitTypeParameter(tree, visitorState);
   }
 
   @Override
   public Void visitUnary(UnaryTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (UnaryTreeMatcher matcher : unaryMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchUnary(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitUnary(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitUnary(tree, visitorState);
   }
 
   @Override
   public Void visitUnionType(UnionTypeTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (UnionTypeTreeMatcher matcher : unionTypeMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchUnionType(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitUnionType(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitUnionType(tree, visitorState);
   }
 
   @Override
   public Void visitVariable(VariableTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (VariableTreeMatcher matcher : variableMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchVariable(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitVariable(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitVariable(tree, visitorState);
   }
 
   @Override
   public Void visitWhileLoop(WhileLoopTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (WhileLoopTreeMatcher matcher : whileLoopMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchWhileLoop(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitWhileLoop(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitWhileLoop(tree, visitorState);
   }
 
   @Override
   public Void visitWildcard(WildcardTree tree, VisitorState visitorState) {
-    VisitorState state = visitorState.withPath(getCurrentPath());
-    for (WildcardTreeMatcher matcher : wildcardMatchers) {
-      if (!isSuppressed(matcher, state)) {
-        try {
-          reportMatch(matcher.matchWildcard(tree, state), tree, state);
-        } catch (Throwable t) {
-          handleError(matcher, t);
-        }
-      }
-    }
-    return super.visitWildcard(tree, state);
+    processMatchers(tree, visitorState);
+    return super.visitWildcard(tree, visitorState);
   }
 
   /**
@@ -22,30 +22,69 @@ import com.google.errorprone.VisitorState;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Suppressible;
 import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
 import com.sun.source.util.TreePath;
 import com.sun.source.util.TreePathScanner;
 import com.sun.tools.javac.code.Symbol;
 import java.lang.annotation.Annotation;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
 /**
- * TODO(eaftan): I'm worried about this performance of this code,
- * specifically the part that handles SuppressWarnings.  We should
- * profile it and see where the hotspots are.
+ * A {@link TreePathScanner} that keeps track of the suppression state of the current path.
+ *
+ * <p>Suppression state only changes at declarations (classes, methods and variables), so it is
+ * only recomputed there. Checkers that are registered with {@link #registerSuppressible} are
+ * assigned an index into a bit set of suppressed checkers, so that testing whether one of them is
+ * suppressed on the current path is a single bit test.
  *
  * @author alexeagle@google.com (Alex Eagle)
  * @author eaftan@google.com (Eddie Aftandilian)
  */
 public class Scanner extends TreePathScanner<Void, VisitorState> {
 
-  private Set<String> suppressions = new HashSet<>();
-  private Set<Class<? extends Annotation>> customSuppressions =
-      new HashSet<>();
-  private boolean inGeneratedCode = false;
+  /** The suppression state of a path. Instances are never modified once they are published. */
+  private static final class SuppressionState {
+    static final SuppressionState EMPTY =
+        new SuppressionState(
+            Collections.<String>emptySet(),
+            Collections.<Class<? extends Annotation>>emptySet(),
+            false,
+            new BitSet());
+
+    final Set<String> suppressions;
+    final Set<Class<? extends Annotation>> customSuppressions;
+    final boolean inGeneratedCode;
+    /** The indexes of the registered suppressibles that are suppressed. */
+    final BitSet suppressed;
+
+    SuppressionState(
+        Set<String> suppressions,
+        Set<Class<? extends Annotation>> customSuppressions,
+        boolean inGeneratedCode,
+        BitSet suppressed) {
+      this.suppressions = suppressions;
+      this.customSuppressions = customSuppressions;
+      this.inGeneratedCode = inGeneratedCode;
+      this.suppressed = suppressed;
+    }
+  }
+
+  private SuppressionState suppressionState = SuppressionState.EMPTY;
+
+  // Indexes of registered suppressibles, by the names and annotations that suppress them.
+  private int registeredSuppressibles = 0;
+  private final Map<String, BitSet> indexesBySuppressionName = new HashMap<>();
+  private final Map<Class<? extends Annotation>, BitSet> indexesByCustomSuppression =
+      new HashMap<>();
+  private final BitSet suppressedInGeneratedCode = new BitSet();
+
   // This must be lazily initialized, because the list of custom suppression annotations will
   // not be available until after the subclass's constructor has run.
   private SuppressionHelper suppressionHelper;
@@ -56,21 +95,55 @@ public class Scanner extends TreePathScanner<Void, VisitorState> {
     }
   }
 
+  /**
+   * Registers a suppressible so that its suppression can be tested with {@link
+   * #isSuppressed(int)}.
+   *
+   * @param suppressible holds information about the suppressibilty of a checker
+   * @param severityLevel the severity of the checker, which determines whether it is suppressed in
+   *     generated code
+   * @return the index of the suppressible
+   */
+  protected int registerSuppressible(Suppressible suppressible, SeverityLevel severityLevel) {
+    int index = registeredSuppressibles++;
+    switch (suppressible.suppressibility()) {
+      case UNSUPPRESSIBLE:
+        return index;
+      case CUSTOM_ANNOTATION:
+        for (Class<? extends Annotation> annotation :
+            suppressible.customSuppressionAnnotations()) {
+          indexesByCustomSuppression.computeIfAbsent(annotation, a -> new BitSet()).set(index);
+        }
+        break;
+      case SUPPRESS_WARNINGS:
+        for (String name : suppressible.allNames()) {
+          indexesBySuppressionName.computeIfAbsent(name, n -> new BitSet()).set(index);
+        }
+        break;
+      default:
+        throw new IllegalStateException("No case for: " + suppressible.suppressibility());
+    }
+    if (severityLevel != SeverityLevel.ERROR) {
+      suppressedInGeneratedCode.set(index);
+    }
+    return index;
+  }
+
   /**
    * Scan a tree from a position identified by a TreePath.
    */
   @Override
   public Void scan(TreePath path, VisitorState state) {
-    SuppressionHelper.SuppressionInfo prevSuppressionInfo =
-        updateSuppressions(path.getLeaf(), state);
-
+    if (!isDeclaration(path.getLeaf())) {
+      return super.scan(path, state);
+    }
+    SuppressionState prevSuppressionState = suppressionState;
+    updateSuppressions(path.getLeaf(), state);
     try {
       return super.scan(path, state);
     } finally {
       // Restore old suppression state.
-      suppressions = prevSuppressionInfo.suppressWarningsStrings;
-      customSuppressions = prevSuppressionInfo.customSuppressions;
-      inGeneratedCode = prevSuppressionInfo.inGeneratedCode;
+      suppressionState = prevSuppressionState;
     }
   }
 
@@ -83,48 +156,82 @@ public class Scanner extends TreePathScanner<Void, VisitorState> {
     if (tree == null) {
       return null;
     }
-
-    SuppressionHelper.SuppressionInfo prevSuppressionInfo = updateSuppressions(tree, state);
+    if (!isDeclaration(tree)) {
+      return super.scan(tree, state);
+    }
+    SuppressionState prevSuppressionState = suppressionState;
+    updateSuppressions(tree, state);
     try {
       return super.scan(tree, state);
     } finally {
       // Restore old suppression state.
-      suppressions = prevSuppressionInfo.suppressWarningsStrings;
-      customSuppressions = prevSuppressionInfo.customSuppressions;
-      inGeneratedCode = prevSuppressionInfo.inGeneratedCode;
+      suppressionState = prevSuppressionState;
     }
   }
 
-  /**
-   * Updates current suppression state with information for the given {@code tree}.  Returns
-   * the previous suppression state so that it can be restored when going up the tree.
-   */
-  private SuppressionHelper.SuppressionInfo updateSuppressions(Tree tree, VisitorState state) {
-    SuppressionHelper.SuppressionInfo prevSuppressionInfo =
-        new SuppressionHelper.SuppressionInfo(suppressions, customSuppressions, inGeneratedCode);
-
-    initSuppressionHelper(state);
+  /** Suppressions can only be introduced by annotations on declarations. */
+  private static boolean isDeclaration(Tree tree) {
+    return tree instanceof ClassTree || tree instanceof MethodTree || tree instanceof VariableTree;
+  }
 
+  /** Updates the current suppression state with information for the given declaration. */
+  private void updateSuppressions(Tree tree, VisitorState state) {
     Symbol sym = ASTHelpers.getSymbol(tree);
-    if (sym != null) {
-      SuppressionHelper.SuppressionInfo newSuppressions =
-          suppressionHelper.extendSuppressionSets(
-              sym,
-              state.getSymtab().suppressWarningsType,
-              suppressions,
-              customSuppressions,
-              inGeneratedCode,
-              state);
-      if (newSuppressions.suppressWarningsStrings != null) {
-        suppressions = newSuppressions.suppressWarningsStrings;
+    if (sym == null) {
+      return;
+    }
+    initSuppressionHelper(state);
+    SuppressionState prev = suppressionState;
+    SuppressionHelper.SuppressionInfo newSuppressions =
+        suppressionHelper.extendSuppressionSets(
+            sym,
+            state.getSymtab().suppressWarningsType,
+            prev.suppressions,
+            prev.customSuppressions,
+            prev.inGeneratedCode,
+            state);
+    if (newSuppressions.suppressWarningsStrings == null
+        && newSuppressions.customSuppressions == null
+        && newSuppressions.inGeneratedCode == prev.inGeneratedCode) {
+      // The common case: nothing changed, so the current state can be shared.
+      return;
+    }
+    BitSet suppressed = (BitSet) prev.suppressed.clone();
+    Set<String> suppressions = prev.suppressions;
+    if (newSuppressions.suppressWarningsStrings != null) {
+      suppressions = newSuppressions.suppressWarningsStrings;
+      for (String suppression : suppressions) {
+        BitSet indexes = indexesBySuppressionName.get(suppression);
+        if (indexes != null) {
+          suppressed.or(indexes);
+        }
       }
-      if (newSuppressions.customSuppressions != null) {
-        customSuppressions = newSuppressions.customSuppressions;
+    }
+    Set<Class<? extends Annotation>> customSuppressions = prev.customSuppressions;
+    if (newSuppressions.customSuppressions != null) {
+      customSuppressions = newSuppressions.customSuppressions;
+      for (Class<? extends Annotation> customSuppression : customSuppressions) {
+        BitSet indexes = indexesByCustomSuppression.get(customSuppression);
+        if (indexes != null) {
+          suppressed.or(indexes);
+        }
       }
-      inGeneratedCode = newSuppressions.inGeneratedCode;
     }
+    if (newSuppressions.inGeneratedCode
+        && state.errorProneOptions().disableWarningsInGeneratedCode()) {
+      suppressed.or(suppressedInGeneratedCode);
+    }
+    suppressionState =
+        new SuppressionState(
+            suppressions, customSuppressions, newSuppressions.inGeneratedCode, suppressed);
+  }
 
-    return prevSuppressionInfo;
+  /**
+   * Returns true if the suppressible with the given index, as returned by {@link
+   * #registerSuppressible}, should be suppressed on the current tree path.
+   */
+  protected boolean isSuppressed(int index) {
+    return suppressionState.suppressed.get(index);
   }
 
   /**
@@ -133,14 +240,25 @@ public class Scanner extends TreePathScanner<Void, VisitorState> {
    * @param suppressible holds information about the suppressibilty of a checker
    */
   protected boolean isSuppressed(Suppressible suppressible, VisitorState state) {
-    initSuppressionHelper(state);
+    return isSuppressed(suppressible, severityMap().get(suppressible.canonicalName()), state);
+  }
 
+  /**
+   * Returns true if this checker should be suppressed on the current tree path.
+   *
+   * <p>Prefer {@link #isSuppressed(int)} for checkers that are known ahead of time.
+   *
+   * @param suppressible holds information about the suppressibilty of a checker
+   * @param severityLevel the severity of the checker, which callers may have precomputed
+   */
+  protected boolean isSuppressed(
+      Suppressible suppressible, SeverityLevel severityLevel, VisitorState state) {
     return SuppressionHelper.isSuppressed(
         suppressible,
-        suppressions,
-        customSuppressions,
-        severityMap().get(suppressible.canonicalName()),
-        inGeneratedCode,
+        suppressionState.suppressions,
+        suppressionState.customSuppressions,
+        severityLevel,
+        suppressionState.inGeneratedCode,
         state.errorProneOptions().disableWarningsInGeneratedCode());
   }
 
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.scanner;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.sun.source.tree.Tree;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the number of invocations, wall time and allocated bytes of every check's {@code
+ * match*} methods, broken down by the {@link Tree.Kind} of the matched node.
+ *
+ * <p>Profiling is enabled with {@code -XepProfile:<file>}. A single profiler is shared by all
+ * compilation units in a compilation, and the report is written once the compilation finishes.
+ */
+public final class ScannerProfiler {
+
+  /** Accumulated measurements for a single check, or for a single check and tree kind. */
+  private static final class Counter {
+    long invocations;
+    long nanos;
+    long bytes;
+
+    void add(long nanos, long bytes) {
+      this.invocations++;
+      this.nanos += nanos;
+      this.bytes += bytes;
+    }
+  }
+
+  private static final class CheckProfile {
+    final String checkName;
+    final Counter total = new Counter();
+    final Map<Tree.Kind, Counter> byKind = new EnumMap<>(Tree.Kind.class);
+
+    CheckProfile(String checkName) {
+      this.checkName = checkName;
+    }
+  }
+
+  private static final Comparator<Counter> BY_TIME =
+      Comparator.comparingLong((Counter c) -> c.nanos).reversed();
+
+  private final Path output;
+  private final Map<String, CheckProfile> profiles = new HashMap<>();
+  private final com.sun.management.ThreadMXBean threadBean;
+
+  public ScannerProfiler(Path output) {
+    this.output = output;
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      this.threadBean = (com.sun.management.ThreadMXBean) bean;
+      threadBean.setThreadAllocatedMemoryEnabled(true);
+    } else {
+      this.threadBean = null;
+    }
+  }
+
+  /**
+   * Returns the number of bytes allocated so far by the current thread, or 0 if the JVM does not
+   * support measuring allocations.
+   */
+  long allocatedBytes() {
+    if (threadBean == null) {
+      return 0;
+    }
+    return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /** Records a single invocation of the given check on a node of the given kind. */
+  void record(String checkName, Tree.Kind kind, long nanos, long bytes) {
+    CheckProfile profile = profiles.computeIfAbsent(checkName, CheckProfile::new);
+    profile.total.add(nanos, bytes);
+    profile.byKind.computeIfAbsent(kind, k -> new Counter()).add(nanos, bytes);
+  }
+
+  /** Writes the report to the file given by {@code -XepProfile}. */
+  public void writeReport() throws IOException {
+    try (Writer writer = Files.newBufferedWriter(output, UTF_8)) {
+      writer.write(report());
+    }
+  }
+
+  /**
+   * Returns a report of the recorded measurements, with the most expensive checks first and each
+   * check's measurements broken down by tree kind.
+   */
+  @VisibleForTesting
+  String report() {
+    List<CheckProfile> sorted = new ArrayList<>(profiles.values());
+    sorted.sort(Comparator.comparing((CheckProfile p) -> p.total, BY_TIME));
+    StringBuilder sb = new StringBuilder();
+    sb.append(
+        String.format(
+            "%-50s %12s %14s %16s%n", "check", "invocations", "time (ms)", "allocated (KB)"));
+    for (CheckProfile profile : sorted) {
+      appendRow(sb, profile.checkName, profile.total);
+      List<Map.Entry<Tree.Kind, Counter>> kinds = new ArrayList<>(profile.byKind.entrySet());
+      kinds.sort(Map.Entry.comparingByValue(BY_TIME));
+      for (Map.Entry<Tree.Kind, Counter> kind : kinds) {
+        appendRow(sb, "  " + kind.getKey(), kind.getValue());
+      }
+    }
+    return sb.toString();
+  }
+
+  private static void appendRow(StringBuilder sb, String label, Counter counter) {
+    sb.append(
+        String.format(
+            "%-50s %12d %14.3f %16d%n",
+            label, counter.invocations, counter.nanos / 1e6, counter.bytes / 1024));
+  }
+}
@@ -48,7 +48,6 @@ import com.sun.tools.javac.code.Flags;
 import com.sun.tools.javac.code.Scope;
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.code.Symbol.ClassSymbol;
-import com.sun.tools.javac.code.Symbol.CompletionFailure;
 import com.sun.tools.javac.code.Symbol.MethodSymbol;
 import com.sun.tools.javac.code.Symbol.PackageSymbol;
 import com.sun.tools.javac.code.Symbol.TypeSymbol;
@@ -504,33 +503,7 @@ public class ASTHelpers {
    *     "javax.annotation.Nullable", or "some.package.OuterClassName$InnerClassName")
    */
   public static boolean hasAnnotation(Symbol sym, String annotationClass, VisitorState state) {
-    Name annotationName = state.getName(annotationClass);
-    Symbol annotationSym;
-    synchronized (state.context) {
-      annotationSym = state.getSymtab().enterClass(annotationName);
-    }
-    try {
-      annotationSym.complete();
-    } catch (CompletionFailure e) {
-      // @Inherited won't work if the annotation isn't on the classpath, but we can still check
-      // if it's present directly
-    }
-    Symbol inheritedSym = state.getSymtab().inheritedType.tsym;
-
-    if ((sym == null) || (annotationSym == null)) {
-      return false;
-    }
-    if ((sym instanceof ClassSymbol) && (annotationSym.attribute(inheritedSym) != null)) {
-      while (sym != null) {
-        if (sym.attribute(annotationSym) != null) {
-          return true;
-        }
-        sym = ((ClassSymbol) sym).getSuperclass().tsym;
-      }
-      return false;
-    } else {
-      return sym.attribute(annotationSym) != null;
-    }
+    return AnnotationLookup.instance(state.context).hasAnnotation(sym, annotationClass);
   }
 
   /**
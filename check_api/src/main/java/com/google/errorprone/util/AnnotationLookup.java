@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import com.google.common.collect.ImmutableSet;
+import com.sun.tools.javac.code.Attribute;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.CompletionFailure;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Names;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers {@link ASTHelpers#hasAnnotation} queries for a compilation.
+ *
+ * <p>The symbol of each annotation is resolved once per name, and the annotations declared on each
+ * class and its superclasses are computed once per class, so that checking for an {@code
+ * Inherited} annotation does not walk the superclass chain on every query.
+ */
+public final class AnnotationLookup {
+
+  private static final Context.Key<AnnotationLookup> ANNOTATION_LOOKUP_KEY = new Context.Key<>();
+
+  /** A resolved annotation type. */
+  private static final class AnnotationType {
+    final Symbol sym;
+    final boolean inherited;
+    // false if the annotation's class could not be completed
+    final boolean completed;
+
+    AnnotationType(Symbol sym, boolean inherited, boolean completed) {
+      this.sym = sym;
+      this.inherited = inherited;
+      this.completed = completed;
+    }
+  }
+
+  private final Context context;
+  private final Map<String, AnnotationType> annotationTypes = new ConcurrentHashMap<>();
+  // The types of the annotations declared on each class or any of its superclasses.
+  private final Map<ClassSymbol, ImmutableSet<Symbol>> classAnnotations =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Retrieve an instance of {@link AnnotationLookup} from the {@code context}. If there is no
+   * {@link AnnotationLookup} currently in the {@code context}, create one, insert it, and return
+   * it.
+   */
+  public static AnnotationLookup instance(Context context) {
+    AnnotationLookup instance = context.get(ANNOTATION_LOOKUP_KEY);
+    if (instance == null) {
+      instance = new AnnotationLookup(context);
+      context.put(ANNOTATION_LOOKUP_KEY, instance);
+    }
+    return instance;
+  }
+
+  private AnnotationLookup(Context context) {
+    this.context = context;
+  }
+
+  /**
+   * Determines whether a symbol has an annotation of the given type. This includes annotations
+   * inherited from superclasses due to {@code @Inherited}.
+   *
+   * @param annotationClass the binary class name of the annotation (e.g.
+   *     "javax.annotation.Nullable", or "some.package.OuterClassName$InnerClassName")
+   */
+  public boolean hasAnnotation(Symbol sym, String annotationClass) {
+    if (sym == null) {
+      return false;
+    }
+    AnnotationType annotationType = annotationTypes.get(annotationClass);
+    if (annotationType == null) {
+      annotationType = resolve(annotationClass);
+      if (annotationType.completed) {
+        annotationTypes.put(annotationClass, annotationType);
+      }
+    }
+    if (annotationType.inherited && sym instanceof ClassSymbol) {
+      return annotationsIncludingSuperclasses((ClassSymbol) sym).contains(annotationType.sym);
+    }
+    return sym.attribute(annotationType.sym) != null;
+  }
+
+  private AnnotationType resolve(String annotationClass) {
+    Symtab symtab = Symtab.instance(context);
+    Symbol annotationSym;
+    synchronized (context) {
+      annotationSym = symtab.enterClass(Names.instance(context).fromString(annotationClass));
+    }
+    boolean completed = true;
+    try {
+      annotationSym.complete();
+    } catch (CompletionFailure e) {
+      // @Inherited won't work if the annotation isn't on the classpath, but we can still check
+      // if it's present directly. Some versions of javac reset symbols that failed to complete,
+      // so the annotation may be found later, and the result is not cached.
+      completed = false;
+    }
+    return new AnnotationType(
+        annotationSym, annotationSym.attribute(symtab.inheritedType.tsym) != null, completed);
+  }
+
+  /**
+   * Returns the types of the annotations declared on {@code sym} or any of its superclasses. If
+   * completing a superclass fails, the {@link CompletionFailure} is propagated and nothing is
+   * cached for the classes below it, so that a later query fails in the same way.
+   */
+  private ImmutableSet<Symbol> annotationsIncludingSuperclasses(ClassSymbol sym) {
+    ImmutableSet<Symbol> cached = classAnnotations.get(sym);
+    if (cached != null) {
+      return cached;
+    }
+    // Find the classes up to the nearest superclass whose annotations are already known.
+    Deque<ClassSymbol> uncached = new ArrayDeque<>();
+    ImmutableSet<Symbol> inherited = ImmutableSet.of();
+    for (Symbol current = sym; current instanceof ClassSymbol; ) {
+      ClassSymbol classSym = (ClassSymbol) current;
+      ImmutableSet<Symbol> known = classAnnotations.get(classSym);
+      if (known != null) {
+        inherited = known;
+        break;
+      }
+      uncached.push(classSym);
+      current = classSym.getSuperclass().tsym;
+    }
+    // Fill them in from the top of the hierarchy down.
+    while (!uncached.isEmpty()) {
+      ClassSymbol classSym = uncached.pop();
+      ImmutableSet.Builder<Symbol> annotations = ImmutableSet.<Symbol>builder().addAll(inherited);
+      for (Attribute.Compound annotation : classSym.getRawAttributes()) {
+        annotations.add(annotation.type.tsym);
+      }
+      inherited = annotations.build();
+      classAnnotations.put(classSym, inherited);
+    }
+    return inherited;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import com.sun.tools.javac.code.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Facts derived from a method invocation, constructor invocation or method select expression,
+ * each computed at most once.
+ *
+ * <p>Instances are obtained from {@link com.google.errorprone.VisitorState#getInvocationFacts},
+ * which shares them between all of the checkers that visit the same node.
+ */
+public final class InvocationFacts {
+
+  private final ExpressionTree tree;
+
+  private boolean symbolComputed;
+  private Symbol symbol;
+  private boolean receiverTypeComputed;
+  private Type receiverType;
+  private String methodName;
+  private List<Type> argumentTypes;
+
+  public InvocationFacts(ExpressionTree tree) {
+    this.tree = tree;
+  }
+
+  /** The tree these facts were derived from. */
+  public ExpressionTree tree() {
+    return tree;
+  }
+
+  /** The symbol of the tree, as returned by {@code ASTHelpers.getSymbol}. */
+  @Nullable
+  public Symbol symbol() {
+    if (!symbolComputed) {
+      symbol = ASTHelpers.getSymbol(tree);
+      symbolComputed = true;
+    }
+    return symbol;
+  }
+
+  /** The symbol of the invoked method or constructor, or {@code null} if there is none. */
+  @Nullable
+  public MethodSymbol methodSymbol() {
+    Symbol sym = symbol();
+    return sym instanceof MethodSymbol ? (MethodSymbol) sym : null;
+  }
+
+  /**
+   * The type of the receiver of a method invocation, as returned by {@link
+   * ASTHelpers#getReceiverType}.
+   *
+   * @throws IllegalArgumentException if the tree is not a method invocation, field access or
+   *     identifier
+   */
+  public Type receiverType() {
+    if (!receiverTypeComputed) {
+      receiverType = ASTHelpers.getReceiverType(tree);
+      receiverTypeComputed = true;
+    }
+    return receiverType;
+  }
+
+  /** The simple name of the invoked method, or {@code null} if the tree has no method symbol. */
+  @Nullable
+  public String methodName() {
+    if (methodName == null) {
+      MethodSymbol sym = methodSymbol();
+      if (sym != null) {
+        methodName = sym.getSimpleName().toString();
+      }
+    }
+    return methodName;
+  }
+
+  /**
+   * The types of the actual arguments of a method or constructor invocation, in order, or an empty
+   * list for other trees. An argument whose type is unknown has a {@code null} entry, so the list
+   * always lines up with the arguments.
+   */
+  public List<Type> argumentTypes() {
+    if (argumentTypes == null) {
+      List<? extends ExpressionTree> arguments;
+      if (tree instanceof MethodInvocationTree) {
+        arguments = ((MethodInvocationTree) tree).getArguments();
+      } else if (tree instanceof NewClassTree) {
+        arguments = ((NewClassTree) tree).getArguments();
+      } else {
+        arguments = Collections.emptyList();
+      }
+      List<Type> types = new ArrayList<>(arguments.size());
+      for (ExpressionTree argument : arguments) {
+        types.add(ASTHelpers.getType(argument));
+      }
+      argumentTypes = Collections.unmodifiableList(types);
+    }
+    return argumentTypes;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+import java.util.Arrays;
+
+/**
+ * The offset of the start of each line of a source file, so that the line containing a position,
+ * or the text of a line, can be found without scanning the source.
+ *
+ * <p>Lines are terminated by {@code '\n'}, and numbered from 1. A source ending in a line
+ * terminator has an empty last line.
+ */
+public final class LineOffsets {
+
+  private final CharSequence source;
+  private final int[] lineStarts;
+
+  private LineOffsets(CharSequence source, int[] lineStarts) {
+    this.source = source;
+    this.lineStarts = lineStarts;
+  }
+
+  /** Returns the line offsets of {@code source}, which must not be modified afterwards. */
+  public static LineOffsets of(CharSequence source) {
+    int lines = 1;
+    for (int i = 0; i < source.length(); i++) {
+      if (source.charAt(i) == '\n') {
+        lines++;
+      }
+    }
+    int[] lineStarts = new int[lines];
+    int line = 1;
+    for (int i = 0; i < source.length(); i++) {
+      if (source.charAt(i) == '\n') {
+        lineStarts[line++] = i + 1;
+      }
+    }
+    return new LineOffsets(source, lineStarts);
+  }
+
+  public int lineCount() {
+    return lineStarts.length;
+  }
+
+  /** Returns the number of the line containing the character at {@code position}. */
+  public int lineNumber(int position) {
+    checkPositionIndex(position, source.length());
+    int index = Arrays.binarySearch(lineStarts, position);
+    return (index >= 0 ? index : -index - 2) + 1;
+  }
+
+  /** Returns the position of the first character of {@code line}. */
+  public int lineStart(int line) {
+    checkElementIndex(line - 1, lineStarts.length, "line");
+    return lineStarts[line - 1];
+  }
+
+  /** Returns the position just past the last character of {@code line}, before its terminator. */
+  public int lineEnd(int line) {
+    checkElementIndex(line - 1, lineStarts.length, "line");
+    return line < lineStarts.length ? lineStarts[line] - 1 : source.length();
+  }
+
+  /** Returns the text of {@code line}, without its terminator. */
+  public CharSequence line(int line) {
+    return source.subSequence(lineStart(line), lineEnd(line));
+  }
+}
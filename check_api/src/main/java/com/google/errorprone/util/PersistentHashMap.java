@@ -0,0 +1,342 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable hash map that shares structure between versions (a hash array mapped trie).
+ * Deriving a map with one updated entry copies only the nodes on the path to that entry, and an
+ * update that does not change the map returns the same instance.
+ *
+ * <p>Keys and values must not be null.
+ */
+public final class PersistentHashMap<K, V> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  @SuppressWarnings({"unchecked", "rawtypes"}) // fully variant
+  private static final PersistentHashMap<?, ?> EMPTY =
+      new PersistentHashMap(BitmapNode.EMPTY, 0);
+
+  @SuppressWarnings("unchecked") // fully variant
+  public static <K, V> PersistentHashMap<K, V> empty() {
+    return (PersistentHashMap<K, V>) EMPTY;
+  }
+
+  private final Node root;
+  private final int size;
+
+  private PersistentHashMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the value for {@code key}, or null if there is none. */
+  @Nullable
+  @SuppressWarnings("unchecked") // values are only ever stored as V
+  public V get(Object key) {
+    return (V) root.get(key, hash(key), 0);
+  }
+
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Returns a map with {@code key} mapped to {@code value}. If {@code key} is already mapped to a
+   * value equal to {@code value}, returns this map.
+   */
+  public PersistentHashMap<K, V> put(K key, V value) {
+    checkNotNull(key);
+    checkNotNull(value);
+    boolean[] added = new boolean[1];
+    Node newRoot = root.put(key, value, hash(key), 0, added);
+    if (newRoot == root) {
+      return this;
+    }
+    return new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+  }
+
+  /**
+   * Returns a map without a mapping for {@code key}. If there is no such mapping, returns this map.
+   */
+  public PersistentHashMap<K, V> remove(Object key) {
+    Node newRoot = root.remove(key, hash(key), 0);
+    if (newRoot == root) {
+      return this;
+    }
+    if (newRoot == null) {
+      return empty();
+    }
+    return new PersistentHashMap<>(newRoot, size - 1);
+  }
+
+  /** Calls {@code action} for each entry, in no particular order. */
+  @SuppressWarnings("unchecked") // keys and values are only ever stored as K and V
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    root.forEach((BiConsumer<Object, Object>) action);
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  private abstract static class Node {
+    @Nullable
+    abstract Object get(Object key, int hash, int shift);
+
+    abstract Node put(Object key, Object value, int hash, int shift, boolean[] added);
+
+    /** Returns this node if it has no entry for the key, or null if the result would be empty. */
+    @Nullable
+    abstract Node remove(Object key, int hash, int shift);
+
+    abstract void forEach(BiConsumer<Object, Object> action);
+  }
+
+  /**
+   * An interior node with up to 32 slots, one for each value of the 5 bits of the hash at this
+   * node's depth. Each occupied slot is a pair in {@code array}: either a key and its value, or
+   * {@code null} and a child node.
+   */
+  private static final class BitmapNode extends Node {
+    static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    final int bitmap;
+    final Object[] array;
+
+    BitmapNode(int bitmap, Object[] array) {
+      this.bitmap = bitmap;
+      this.array = array;
+    }
+
+    private int index(int bit) {
+      return 2 * Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    Object get(Object key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return null;
+      }
+      int index = index(bit);
+      Object k = array[index];
+      Object v = array[index + 1];
+      if (k == null) {
+        return ((Node) v).get(key, hash, shift + BITS);
+      }
+      return key.equals(k) ? v : null;
+    }
+
+    @Override
+    Node put(Object key, Object value, int hash, int shift, boolean[] added) {
+      int bit = bit(hash, shift);
+      int index = index(bit);
+      if ((bitmap & bit) == 0) {
+        Object[] newArray = new Object[array.length + 2];
+        System.arraycopy(array, 0, newArray, 0, index);
+        newArray[index] = key;
+        newArray[index + 1] = value;
+        System.arraycopy(array, index, newArray, index + 2, array.length - index);
+        added[0] = true;
+        return new BitmapNode(bitmap | bit, newArray);
+      }
+      Object k = array[index];
+      Object v = array[index + 1];
+      if (k == null) {
+        Node child = (Node) v;
+        Node newChild = child.put(key, value, hash, shift + BITS, added);
+        return newChild == child ? this : with(index + 1, newChild);
+      }
+      if (key.equals(k)) {
+        return value.equals(v) ? this : with(index + 1, value);
+      }
+      added[0] = true;
+      Node child = createNode(shift + BITS, k, v, hash(k), key, value, hash);
+      Object[] newArray = array.clone();
+      newArray[index] = null;
+      newArray[index + 1] = child;
+      return new BitmapNode(bitmap, newArray);
+    }
+
+    @Override
+    Node remove(Object key, int hash, int shift) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int index = index(bit);
+      Object k = array[index];
+      Object v = array[index + 1];
+      if (k == null) {
+        Node child = (Node) v;
+        Node newChild = child.remove(key, hash, shift + BITS);
+        if (newChild == child) {
+          return this;
+        }
+        if (newChild == null) {
+          return without(bit, index);
+        }
+        if (newChild instanceof BitmapNode) {
+          BitmapNode bitmapChild = (BitmapNode) newChild;
+          if (bitmapChild.array.length == 2 && bitmapChild.array[0] != null) {
+            // Pull a lone entry up into this node.
+            BitmapNode result = with(index + 1, bitmapChild.array[1]);
+            result.array[index] = bitmapChild.array[0];
+            return result;
+          }
+        }
+        return with(index + 1, newChild);
+      }
+      return key.equals(k) ? without(bit, index) : this;
+    }
+
+    @Nullable
+    private BitmapNode without(int bit, int index) {
+      if (array.length == 2) {
+        return null;
+      }
+      Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+      return new BitmapNode(bitmap ^ bit, newArray);
+    }
+
+    private BitmapNode with(int index, Object value) {
+      Object[] newArray = array.clone();
+      newArray[index] = value;
+      return new BitmapNode(bitmap, newArray);
+    }
+
+    @Override
+    void forEach(BiConsumer<Object, Object> action) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (array[i] == null) {
+          ((Node) array[i + 1]).forEach(action);
+        } else {
+          action.accept(array[i], array[i + 1]);
+        }
+      }
+    }
+  }
+
+  /** A leaf node for keys whose hashes are identical. */
+  private static final class CollisionNode extends Node {
+    final int hash;
+    final Object[] array;
+
+    CollisionNode(int hash, Object[] array) {
+      this.hash = hash;
+      this.array = array;
+    }
+
+    @Override
+    Object get(Object key, int hash, int shift) {
+      if (hash != this.hash) {
+        return null;
+      }
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return array[i + 1];
+        }
+      }
+      return null;
+    }
+
+    @Override
+    Node put(Object key, Object value, int hash, int shift, boolean[] added) {
+      if (hash != this.hash) {
+        // Push this node down a level, below a node that can tell the two hashes apart.
+        BitmapNode parent = new BitmapNode(bit(this.hash, shift), new Object[] {null, this});
+        return parent.put(key, value, hash, shift, added);
+      }
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          if (value.equals(array[i + 1])) {
+            return this;
+          }
+          Object[] newArray = array.clone();
+          newArray[i + 1] = value;
+          return new CollisionNode(hash, newArray);
+        }
+      }
+      Object[] newArray = Arrays.copyOf(array, array.length + 2);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = value;
+      added[0] = true;
+      return new CollisionNode(hash, newArray);
+    }
+
+    @Override
+    Node remove(Object key, int hash, int shift) {
+      if (hash != this.hash) {
+        return this;
+      }
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          if (array.length == 2) {
+            return null;
+          }
+          Object[] newArray = new Object[array.length - 2];
+          System.arraycopy(array, 0, newArray, 0, i);
+          System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+          return new CollisionNode(hash, newArray);
+        }
+      }
+      return this;
+    }
+
+    @Override
+    void forEach(BiConsumer<Object, Object> action) {
+      for (int i = 0; i < array.length; i += 2) {
+        action.accept(array[i], array[i + 1]);
+      }
+    }
+  }
+
+  /** Creates a node at depth {@code shift} containing two entries with different keys. */
+  private static Node createNode(
+      int shift, Object key1, Object value1, int hash1, Object key2, Object value2, int hash2) {
+    if (hash1 == hash2) {
+      return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+    }
+    boolean[] unused = new boolean[1];
+    return BitmapNode.EMPTY
+        .put(key1, value1, hash1, shift, unused)
+        .put(key2, value2, hash2, shift, unused);
+  }
+}
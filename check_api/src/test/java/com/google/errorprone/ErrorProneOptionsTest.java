@@ -157,6 +157,25 @@ public class ErrorProneOptionsTest {
     assertThat(options.patchingOptions().doRefactor()).isFalse();
   }
 
+  @Test
+  public void recognizesPatchParallelism() {
+    ErrorProneOptions options =
+        ErrorProneOptions.processArgs(
+            new String[] {
+              "-XepPatchLocation:IN_PLACE", "-XepPatchChecks:FooBar", "-XepPatchParallelism:16"
+            });
+    assertThat(options.patchingOptions().parallelism()).isEqualTo(16);
+    assertThat(options.getRemainingArgs()).isEmpty();
+
+    options = ErrorProneOptions.processArgs(new String[] {});
+    assertThat(options.patchingOptions().parallelism())
+        .isEqualTo(Runtime.getRuntime().availableProcessors());
+
+    assertThrows(
+        InvalidCommandLineOptionException.class,
+        () -> ErrorProneOptions.processArgs(new String[] {"-XepPatchParallelism:0"}));
+  }
+
   @Test
   public void throwsExceptionWithBadPatchArgs() {
     assertThrows(
@@ -177,4 +196,53 @@ public class ErrorProneOptionsTest {
     assertThat(options.patchingOptions().inPlace()).isTrue();
     assertThat(options.patchingOptions().customRefactorer()).isPresent();
   }
+
+  @Test
+  public void recognizesProfile() {
+    ErrorProneOptions options =
+        ErrorProneOptions.processArgs(new String[] {"-XepProfile:/tmp/profile.txt"});
+    assertThat(options.profileFile()).hasValue("/tmp/profile.txt");
+    assertThat(options.getRemainingArgs()).isEmpty();
+
+    options = ErrorProneOptions.processArgs(new String[] {});
+    assertThat(options.profileFile()).isAbsent();
+  }
+
+  @Test
+  public void throwsExceptionWithEmptyProfile() {
+    assertThrows(
+        InvalidCommandLineOptionException.class,
+        () -> ErrorProneOptions.processArgs(new String[] {"-XepProfile:"}));
+  }
+
+  @Test
+  public void recognizesDataflowLimits() {
+    ErrorProneOptions options =
+        ErrorProneOptions.processArgs(
+            new String[] {
+              "-XepDataflowMaxMethodSize:1000", "-XepDataflowMaxCompilationUnitSize:50000"
+            });
+    assertThat(options.dataflowMaxMethodSize()).isEqualTo(1000);
+    assertThat(options.dataflowMaxCompilationUnitSize()).isEqualTo(50000);
+    assertThat(options.getRemainingArgs()).isEmpty();
+
+    options = ErrorProneOptions.processArgs(new String[] {});
+    assertThat(options.dataflowMaxMethodSize()).isEqualTo(Integer.MAX_VALUE);
+    assertThat(options.dataflowMaxCompilationUnitSize()).isEqualTo(Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void throwsExceptionWithInvalidDataflowLimit() {
+    assertThrows(
+        InvalidCommandLineOptionException.class,
+        () -> ErrorProneOptions.processArgs(new String[] {"-XepDataflowMaxMethodSize:"}));
+    assertThrows(
+        InvalidCommandLineOptionException.class,
+        () -> ErrorProneOptions.processArgs(new String[] {"-XepDataflowMaxMethodSize:0"}));
+    assertThrows(
+        InvalidCommandLineOptionException.class,
+        () ->
+            ErrorProneOptions.processArgs(
+                new String[] {"-XepDataflowMaxCompilationUnitSize:many"}));
+  }
 }
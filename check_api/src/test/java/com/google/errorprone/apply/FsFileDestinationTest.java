@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.apply;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.errorprone.fixes.Replacement;
+import com.google.errorprone.fixes.Replacements;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link FsFileDestination}. */
+@RunWith(JUnit4.class)
+public class FsFileDestinationTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void replacesFile() throws Exception {
+    Path root = temporaryFolder.getRoot().toPath();
+    Path file = root.resolve("Test.java");
+    Files.write(file, "class Test {}\n".getBytes(UTF_8));
+
+    SourceFile sourceFile = new FsFileSource(root).readFile("Test.java");
+    sourceFile.makeReplacements(new Replacements().add(Replacement.create(0, 0, "final ")));
+    new FsFileDestination(root).writeFile(sourceFile);
+
+    assertThat(new String(Files.readAllBytes(file), UTF_8)).isEqualTo("final class Test {}\n");
+    assertThat(temporaryFolder.getRoot().list()).asList().containsExactly("Test.java");
+  }
+
+  @Test
+  public void replacesSymlinkTarget() throws Exception {
+    Path root = temporaryFolder.getRoot().toPath();
+    Path target = Files.createDirectory(root.resolve("target")).resolve("Test.java");
+    Files.write(target, "class Test {}\n".getBytes(UTF_8));
+    Path link = Files.createSymbolicLink(root.resolve("Test.java"), target);
+
+    SourceFile sourceFile = new FsFileSource(root).readFile("Test.java");
+    sourceFile.makeReplacements(new Replacements().add(Replacement.create(0, 0, "final ")));
+    new FsFileDestination(root).writeFile(sourceFile);
+
+    assertThat(Files.isSymbolicLink(link)).isTrue();
+    assertThat(new String(Files.readAllBytes(target), UTF_8)).isEqualTo("final class Test {}\n");
+    assertThat(target.getParent().toFile().list()).asList().containsExactly("Test.java");
+  }
+
+  @Test
+  public void skipsUnchangedFile() throws Exception {
+    Path root = temporaryFolder.getRoot().toPath();
+    Path file = root.resolve("Test.java");
+    Files.write(file, "class Test {}\n".getBytes(UTF_8));
+    Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+
+    SourceFile sourceFile = new FsFileSource(root).readFile("Test.java");
+    sourceFile.setSourceText("class Test {}\n");
+    new FsFileDestination(root).writeFile(sourceFile);
+
+    // the file was not replaced
+    assertThat(Files.readAttributes(file, BasicFileAttributes.class).fileKey()).isEqualTo(fileKey);
+  }
+}
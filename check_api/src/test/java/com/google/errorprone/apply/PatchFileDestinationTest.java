@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.apply;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.errorprone.fixes.Replacement;
+import com.google.errorprone.fixes.Replacements;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link PatchFileDestination}. */
+@RunWith(JUnit4.class)
+public class PatchFileDestinationTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void writesPatchInPathOrder() throws Exception {
+    Path root = temporaryFolder.getRoot().toPath();
+    Path patchFile = root.resolve("error-prone.patch");
+    PatchFileDestination destination = new PatchFileDestination(root, root, patchFile);
+    for (String name : new String[] {"B.java", "A.java"}) {
+      Files.write(root.resolve(name), "class Test {}\n".getBytes(UTF_8));
+      SourceFile sourceFile = new FsFileSource(root).readFile(name);
+      sourceFile.makeReplacements(new Replacements().add(Replacement.create(0, 0, "final ")));
+      destination.writeFile(sourceFile);
+    }
+    assertThat(Files.exists(patchFile)).isFalse();
+    String expected = destination.patchFile();
+
+    destination.flush();
+
+    String patch = new String(Files.readAllBytes(patchFile), UTF_8);
+    assertThat(patch).isEqualTo(expected);
+    assertThat(destination.patchFile()).isEmpty();
+    assertThat(patch.indexOf("--- A.java")).isAtLeast(0);
+    assertThat(patch.indexOf("--- A.java")).isLessThan(patch.indexOf("--- B.java"));
+  }
+
+  @Test
+  public void noPatchFileWithoutChanges() throws Exception {
+    Path root = temporaryFolder.getRoot().toPath();
+    Path patchFile = root.resolve("error-prone.patch");
+    PatchFileDestination destination = new PatchFileDestination(root, root, patchFile);
+    Files.write(root.resolve("A.java"), "class Test {}\n".getBytes(UTF_8));
+    destination.writeFile(new FsFileSource(root).readFile("A.java"));
+
+    destination.flush();
+
+    assertThat(Files.exists(patchFile)).isFalse();
+  }
+}
@@ -17,6 +17,10 @@
 package com.google.errorprone.apply;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.google.errorprone.fixes.Replacement;
+import com.google.errorprone.fixes.Replacements;
 
 import java.util.Arrays;
 import java.util.List;
@@ -82,6 +86,31 @@ public class SourceFileTest {
         sourceFile.getLines().get(0));
   }
   
+  @Test
+  public void makeReplacements() {
+    sourceFile.makeReplacements(
+        new Replacements()
+            .add(Replacement.create(9, 14, "dolor"))
+            .add(Replacement.create(3, 8, "Sasquatch"))
+            .add(Replacement.create(0, 0, "/* x */"))
+            .add(Replacement.create(0, 3, "")));
+    assertEquals(
+        "/* x */Sasquatch dolor dolor sit amet, consectetur adipisicing elit, sed do"
+            + SOURCE_TEXT.substring(SOURCE_TEXT.indexOf('\n')),
+        sourceFile.getSourceText());
+  }
+
+  @Test
+  public void makeReplacements_outOfBounds() {
+    try {
+      sourceFile.makeReplacements(
+          new Replacements().add(Replacement.create(3, SOURCE_TEXT.length() + 1, "")));
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    assertEquals(SOURCE_TEXT, sourceFile.getSourceText());
+  }
+
   @Test
   public void replaceLines() {
     sourceFile.replaceLines(Arrays.asList("Line1", "Line2"));
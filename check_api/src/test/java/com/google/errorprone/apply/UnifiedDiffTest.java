@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.apply;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.fixes.Replacement;
+import com.google.errorprone.fixes.Replacements;
+import difflib.DiffUtils;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link UnifiedDiff}. */
+@RunWith(JUnit4.class)
+public class UnifiedDiffTest {
+
+  private static final String SOURCE =
+      Joiner.on('\n')
+          .join(
+              "package foo;",
+              "",
+              "class Test {",
+              "  int a = 1;",
+              "  int b = 2;",
+              "  int c = 3;",
+              "  int d = 4;",
+              "  int e = 5;",
+              "  int f = 6;",
+              "  int g = 7;",
+              "  int h = 8;",
+              "}",
+              "");
+
+  private static String unifiedDiff(Replacement... replacements) throws IOException {
+    Replacements sorted = new Replacements();
+    for (Replacement replacement : replacements) {
+      sorted.add(replacement);
+    }
+    StringBuilder diff = new StringBuilder();
+    UnifiedDiff.write("Test.java", SOURCE, ImmutableList.copyOf(sorted.ascending()), diff);
+    return diff.toString();
+  }
+
+  /** Returns the diff from java-diff-utils, which the patch destination used to generate. */
+  private static String expectedDiff(Replacement... replacements) {
+    SourceFile file = new SourceFile("Test.java", SOURCE);
+    Replacements sorted = new Replacements();
+    for (Replacement replacement : replacements) {
+      sorted.add(replacement);
+    }
+    file.makeReplacements(sorted);
+    Splitter splitter = Splitter.on('\n');
+    List<String> original = splitter.splitToList(SOURCE);
+    List<String> diff =
+        DiffUtils.generateUnifiedDiff(
+            "Test.java",
+            "Test.java",
+            original,
+            DiffUtils.diff(original, splitter.splitToList(file.getSourceText())),
+            2);
+    return diff.isEmpty() ? "" : Joiner.on('\n').join(diff) + "\n";
+  }
+
+  private static Replacement replace(String target, String replaceWith) {
+    int start = SOURCE.indexOf(target);
+    return Replacement.create(start, start + target.length(), replaceWith);
+  }
+
+  @Test
+  public void singleLineChange() throws IOException {
+    Replacement replacement = replace("int c = 3", "long c = 3");
+    assertThat(unifiedDiff(replacement)).isEqualTo(expectedDiff(replacement));
+    assertThat(unifiedDiff(replacement))
+        .isEqualTo(
+            "--- Test.java\n"
+                + "+++ Test.java\n"
+                + "@@ -4,5 +4,5 @@\n"
+                + "   int a = 1;\n"
+                + "   int b = 2;\n"
+                + "-  int c = 3;\n"
+                + "+  long c = 3;\n"
+                + "   int d = 4;\n"
+                + "   int e = 5;\n");
+  }
+
+  @Test
+  public void separateAndMergedHunks() throws IOException {
+    Replacement[] replacements = {
+      replace("package foo;", "package bar;"),
+      replace("int b = 2;", "int b = 2;\n  int bb = 22;"),
+      replace("  int f = 6;\n", ""),
+      replace("int h", "long h"),
+    };
+    assertThat(unifiedDiff(replacements)).isEqualTo(expectedDiff(replacements));
+  }
+
+  @Test
+  public void sameLine() throws IOException {
+    Replacement[] replacements = {replace("int", "long"), replace("a = 1", "a = 11")};
+    assertThat(unifiedDiff(replacements)).isEqualTo(expectedDiff(replacements));
+  }
+
+  @Test
+  public void noChange() throws IOException {
+    assertThat(unifiedDiff(replace("int d", "int d"))).isEmpty();
+  }
+}
@@ -17,6 +17,7 @@
 package com.google.errorprone.dataflow;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import com.google.errorprone.dataflow.nullnesspropagation.Nullness;
 import org.junit.Test;
@@ -33,6 +34,18 @@ public class LocalStoreTest {
     assertEquals(newStore(), newStore().leastUpperBound(newStore()));
   }
 
+  @Test
+  public void leastUpperBoundSame() {
+    LocalStore<Nullness> store = newStore();
+    assertSame(store, store.leastUpperBound(store));
+  }
+
+  @Test
+  public void unchangedBuilderReturnsPrototype() {
+    LocalStore<Nullness> store = newStore();
+    assertSame(store, store.toBuilder().build());
+  }
+
   // TODO(cpovirk): more tests!
 
   private static LocalStore<Nullness> newStore() {
@@ -92,6 +92,20 @@ public class AppliedFixTest {
     assertThat(fix.getNewCodeSnippet().toString(), equalTo("int three3tres;"));
   }
 
+  @Test
+  public void shouldReportTheFirstChangedLineOfAMultiLineFix() {
+    AppliedFix.Applier applier =
+        AppliedFix.fromSource(
+            "public class Foo {\n" + "  int a = 1;\n" + "  int b = 2;\n" + "}", endPositions);
+    AppliedFix fix =
+        applier.apply(
+            SuggestedFix.builder().replace(25, 26, "x").replace(34, 37, "long").build());
+    assertThat(fix.getNewCodeSnippet().toString(), equalTo("int x = 1;"));
+
+    fix = applier.apply(SuggestedFix.replace(34, 43, "long b =\n      3"));
+    assertThat(fix.getNewCodeSnippet().toString(), equalTo("long b ="));
+  }
+
   @Test
   public void shouldReturnNullOnEmptyFix() {
     AppliedFix fix =
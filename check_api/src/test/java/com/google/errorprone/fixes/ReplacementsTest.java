@@ -87,6 +87,20 @@ public class ReplacementsTest {
         .inOrder();
   }
 
+  @Test
+  public void ascending() {
+    assertThat(
+            Iterables.transform(
+                new Replacements()
+                    .add(Replacement.create(2, 3, "world"))
+                    .add(Replacement.create(0, 1, "hello"))
+                    .add(Replacement.create(0, 0, "hello"))
+                    .ascending(),
+                AS_RANGES))
+        .containsExactly(Range.closedOpen(0, 0), Range.closedOpen(0, 1), Range.closedOpen(2, 3))
+        .inOrder();
+  }
+
   @Test
   public void identicalDuplicatesOK() {
     Replacements replacements = new Replacements();
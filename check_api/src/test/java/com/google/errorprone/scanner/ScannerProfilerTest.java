@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.scanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Splitter;
+import com.sun.source.tree.Tree;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ScannerProfiler}. */
+@RunWith(JUnit4.class)
+public class ScannerProfilerTest {
+
+  @Test
+  public void reportIsSortedByTime() {
+    ScannerProfiler profiler = new ScannerProfiler(Paths.get("unused"));
+    profiler.record("Cheap", Tree.Kind.IDENTIFIER, 1_000, 0);
+    profiler.record("Expensive", Tree.Kind.METHOD_INVOCATION, 2_000_000, 2048);
+    profiler.record("Expensive", Tree.Kind.CLASS, 5_000_000, 0);
+    profiler.record("Expensive", Tree.Kind.METHOD_INVOCATION, 2_000_000, 2048);
+
+    List<String> lines = Splitter.on('\n').omitEmptyStrings().splitToList(profiler.report());
+    assertThat(lines).hasSize(6);
+    assertThat(lines.get(1)).startsWith("Expensive ");
+    assertThat(lines.get(1)).containsMatch("\\s3\\s+9\\.000\\s+4$");
+    assertThat(lines.get(2)).startsWith("  CLASS ");
+    assertThat(lines.get(3)).startsWith("  METHOD_INVOCATION ");
+    assertThat(lines.get(4)).startsWith("Cheap ");
+    assertThat(lines.get(5)).startsWith("  IDENTIFIER ");
+  }
+}
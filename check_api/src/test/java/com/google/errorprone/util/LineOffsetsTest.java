@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link LineOffsets}. */
+@RunWith(JUnit4.class)
+public class LineOffsetsTest {
+
+  private static final String SOURCE = "class Test {\n  int x;\n\n}\n";
+
+  @Test
+  public void lines() {
+    LineOffsets lines = LineOffsets.of(SOURCE);
+    assertThat(lines.lineCount()).isEqualTo(5);
+    assertThat(lines.line(1).toString()).isEqualTo("class Test {");
+    assertThat(lines.line(2).toString()).isEqualTo("  int x;");
+    assertThat(lines.line(3).toString()).isEmpty();
+    assertThat(lines.line(4).toString()).isEqualTo("}");
+    assertThat(lines.line(5).toString()).isEmpty();
+    assertThat(lines.lineStart(2)).isEqualTo(SOURCE.indexOf("  int x;"));
+    assertThat(lines.lineEnd(2)).isEqualTo(SOURCE.indexOf("\n\n"));
+  }
+
+  @Test
+  public void lineNumber() {
+    LineOffsets lines = LineOffsets.of(SOURCE);
+    assertThat(lines.lineNumber(0)).isEqualTo(1);
+    assertThat(lines.lineNumber(SOURCE.indexOf('\n'))).isEqualTo(1);
+    assertThat(lines.lineNumber(SOURCE.indexOf("int"))).isEqualTo(2);
+    assertThat(lines.lineNumber(SOURCE.indexOf("\n\n") + 1)).isEqualTo(3);
+    assertThat(lines.lineNumber(SOURCE.length())).isEqualTo(5);
+  }
+
+  @Test
+  public void noTrailingNewline() {
+    LineOffsets lines = LineOffsets.of("a\nbc");
+    assertThat(lines.lineCount()).isEqualTo(2);
+    assertThat(lines.line(2).toString()).isEqualTo("bc");
+    assertThat(lines.lineNumber(4)).isEqualTo(2);
+  }
+
+  @Test
+  public void outOfBounds() {
+    LineOffsets lines = LineOffsets.of(SOURCE);
+    try {
+      lines.line(6);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    try {
+      lines.lineNumber(SOURCE.length() + 1);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+}
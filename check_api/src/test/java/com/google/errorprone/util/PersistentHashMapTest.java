@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** {@link PersistentHashMap}Test */
+@RunWith(JUnit4.class)
+public class PersistentHashMapTest {
+
+  /** A key with a fixed hash code, to force collisions. */
+  private static final class Key {
+    final int hash;
+    final String name;
+
+    Key(int hash, String name) {
+      this.hash = hash;
+      this.name = name;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key) o).hash == hash && ((Key) o).name.equals(name);
+    }
+  }
+
+  @Test
+  public void putAndGet() {
+    PersistentHashMap<Integer, String> map = PersistentHashMap.empty();
+    Map<Integer, String> expected = new HashMap<>();
+    for (int i = 0; i < 2000; i++) {
+      map = map.put(i * 31, "v" + i);
+      expected.put(i * 31, "v" + i);
+    }
+    assertThat(map.size()).isEqualTo(expected.size());
+    for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+      assertThat(map.get(entry.getKey())).isEqualTo(entry.getValue());
+    }
+    assertThat(map.get(1)).isNull();
+    Map<Integer, String> actual = new HashMap<>();
+    map.forEach(actual::put);
+    assertThat(actual).isEqualTo(expected);
+  }
+
+  @Test
+  public void putIsPersistent() {
+    PersistentHashMap<String, String> before =
+        PersistentHashMap.<String, String>empty().put("a", "1");
+    PersistentHashMap<String, String> after = before.put("a", "2").put("b", "3");
+    assertThat(before.get("a")).isEqualTo("1");
+    assertThat(before.get("b")).isNull();
+    assertThat(before.size()).isEqualTo(1);
+    assertThat(after.get("a")).isEqualTo("2");
+    assertThat(after.get("b")).isEqualTo("3");
+    assertThat(after.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void unchangedPutReturnsSameMap() {
+    PersistentHashMap<String, String> map =
+        PersistentHashMap.<String, String>empty().put("a", "1");
+    assertThat(map.put("a", "1")).isSameAs(map);
+  }
+
+  @Test
+  public void hashCollisions() {
+    Key a = new Key(42, "a");
+    Key b = new Key(42, "b");
+    Key c = new Key(42 + (1 << 20), "c");
+    PersistentHashMap<Key, String> map =
+        PersistentHashMap.<Key, String>empty().put(a, "a").put(b, "b").put(c, "c");
+    assertThat(map.size()).isEqualTo(3);
+    assertThat(map.get(a)).isEqualTo("a");
+    assertThat(map.get(b)).isEqualTo("b");
+    assertThat(map.get(c)).isEqualTo("c");
+    assertThat(map.get(new Key(42, "d"))).isNull();
+    assertThat(map.put(b, "b")).isSameAs(map);
+    assertThat(map.put(b, "x").get(b)).isEqualTo("x");
+  }
+
+  @Test
+  public void remove() {
+    PersistentHashMap<Integer, String> map = PersistentHashMap.empty();
+    Map<Integer, String> expected = new HashMap<>();
+    for (int i = 0; i < 2000; i++) {
+      map = map.put(i * 31, "v" + i);
+      expected.put(i * 31, "v" + i);
+    }
+    PersistentHashMap<Integer, String> full = map;
+    for (int i = 0; i < 2000; i += 3) {
+      map = map.remove(i * 31);
+      expected.remove(i * 31);
+    }
+    assertThat(map.remove(1)).isSameAs(map);
+    assertThat(map.size()).isEqualTo(expected.size());
+    Map<Integer, String> actual = new HashMap<>();
+    map.forEach(actual::put);
+    assertThat(actual).isEqualTo(expected);
+    assertThat(full.size()).isEqualTo(2000);
+    assertThat(full.get(0)).isEqualTo("v0");
+    for (Integer key : expected.keySet()) {
+      map = map.remove(key);
+    }
+    assertThat(map).isSameAs(PersistentHashMap.empty());
+  }
+
+  @Test
+  public void removeHashCollisions() {
+    Key a = new Key(42, "a");
+    Key b = new Key(42, "b");
+    Key c = new Key(42 + (1 << 20), "c");
+    PersistentHashMap<Key, String> map =
+        PersistentHashMap.<Key, String>empty().put(a, "a").put(b, "b").put(c, "c");
+    map = map.remove(a);
+    assertThat(map.size()).isEqualTo(2);
+    assertThat(map.get(a)).isNull();
+    assertThat(map.get(b)).isEqualTo("b");
+    assertThat(map.get(c)).isEqualTo("c");
+    assertThat(map.remove(new Key(42, "d"))).isSameAs(map);
+    map = map.remove(b).remove(c);
+    assertThat(map.isEmpty()).isTrue();
+  }
+}
@@ -35,8 +35,14 @@ public class ErrorProneJavacPlugin implements Plugin {
   public void init(JavacTask javacTask, String... args) {
     Context context = ((BasicJavacTask) javacTask).getContext();
     BaseErrorProneJavaCompiler.setupMessageBundle(context);
+    ErrorProneOptions errorProneOptions = ErrorProneOptions.processArgs(args);
+    if (errorProneOptions.profileFile().isPresent()) {
+      // the report is written by BaseErrorProneJavaCompiler once the compilation finishes
+      throw new InvalidCommandLineOptionException(
+          "-XepProfile is not supported when Error Prone runs as a javac plugin");
+    }
     javacTask.addTaskListener(
         ErrorProneAnalyzer.createByScanningForPlugins(
-            BuiltInCheckerSuppliers.defaultChecks(), ErrorProneOptions.processArgs(args), context));
+            BuiltInCheckerSuppliers.defaultChecks(), errorProneOptions, context));
   }
 }
@@ -33,6 +33,7 @@ import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.util.ASTHelpers;
+import com.google.errorprone.util.InvocationFacts;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.source.tree.Tree;
 import com.sun.tools.javac.code.Flags;
@@ -95,12 +96,13 @@ public class EqualsIncompatibleType extends BugChecker implements MethodInvocati
     // to this method.
     Type argumentType;
 
+    InvocationFacts facts = state.getInvocationFacts(invocationTree);
     if (STATIC_EQUALS_INVOCATION_MATCHER.matches(invocationTree, state)) {
-      receiverType = ASTHelpers.getType(invocationTree.getArguments().get(0));
-      argumentType = ASTHelpers.getType(invocationTree.getArguments().get(1));
+      receiverType = facts.argumentTypes().get(0);
+      argumentType = facts.argumentTypes().get(1);
     } else {
-      receiverType = ASTHelpers.getReceiverType(invocationTree);
-      argumentType = ASTHelpers.getType(invocationTree.getArguments().get(0));
+      receiverType = facts.receiverType();
+      argumentType = facts.argumentTypes().get(0);
     }
 
     if (receiverType == null || argumentType == null) {
@@ -165,7 +167,7 @@ public class EqualsIncompatibleType extends BugChecker implements MethodInvocati
     Description.Builder description = buildDescription(invocationTree);
     description.setMessage(
         "Calling "
-            + ASTHelpers.getSymbol(invocationTree).getSimpleName()
+            + facts.methodName()
             + " on incompatible types "
             + receiverType
             + " and "
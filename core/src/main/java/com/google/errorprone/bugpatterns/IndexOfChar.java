@@ -19,10 +19,11 @@ package com.google.errorprone.bugpatterns;
 import static com.google.errorprone.BugPattern.Category.JDK;
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 import static com.google.errorprone.matchers.Description.NO_MATCH;
-import static com.google.errorprone.util.ASTHelpers.getType;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationCandidates;
 import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
@@ -33,6 +34,7 @@ import com.google.errorprone.suppliers.Suppliers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
 import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.code.Type;
 import com.sun.tools.javac.code.Types;
 import java.util.List;
 
@@ -45,23 +47,30 @@ import java.util.List;
           + " the search from",
   severity = ERROR
 )
-public class IndexOfChar extends BugChecker implements MethodInvocationTreeMatcher {
+public class IndexOfChar extends BugChecker
+    implements MethodInvocationTreeMatcher, MethodInvocationCandidates {
   private static final Matcher<ExpressionTree> MATCHER =
       MethodMatchers.instanceMethod()
           .onClass(TypePredicates.isExactType(Suppliers.STRING_TYPE))
           .named("indexOf")
           .withParameters("int", "int");
 
+  @Override
+  public ImmutableList<Matcher<ExpressionTree>> candidateMethodMatchers() {
+    return ImmutableList.of(MATCHER);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
     if (!MATCHER.matches(tree, state)) {
       return NO_MATCH;
     }
     List<? extends ExpressionTree> arguments = tree.getArguments();
+    List<Type> argumentTypes = state.getInvocationFacts(tree).argumentTypes();
     Symtab syms = state.getSymtab();
     Types types = state.getTypes();
-    if (types.isSameType(types.unboxedTypeOrType(getType(arguments.get(0))), syms.intType)
-        && types.isSameType(types.unboxedTypeOrType(getType(arguments.get(1))), syms.charType)) {
+    if (types.isSameType(types.unboxedTypeOrType(argumentTypes.get(0)), syms.intType)
+        && types.isSameType(types.unboxedTypeOrType(argumentTypes.get(1)), syms.charType)) {
       return describeMatch(
           tree,
           SuggestedFix.builder()
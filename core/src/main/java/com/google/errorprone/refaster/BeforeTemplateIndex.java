@@ -0,0 +1,306 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.Tree.Kind;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * An index of the before-templates of a list of {@link RefasterRule}s by the shape of the trees
+ * their roots can unify with: the tree kind (which includes the operator of unary, binary and
+ * compound assignment expressions and the kind of a literal), and the method name and number of
+ * arguments of a method invocation.
+ *
+ * <p>Templates whose root shape is not known, such as a lone placeholder, are candidates for every
+ * tree. The candidates for a tree are in the order of their rules, and then of the templates within
+ * each rule.
+ */
+final class BeforeTemplateIndex {
+
+  /** A before-template that may match a tree. */
+  static final class Candidate {
+    /** The index of the rule in {@link BeforeTemplateIndex#rules}. */
+    final int rule;
+    /** The index of the template in the rule's {@link RefasterRule#beforeTemplates}. */
+    final int template;
+    private final Shape shape;
+
+    private Candidate(int rule, int template, Shape shape) {
+      this.rule = rule;
+      this.template = template;
+      this.shape = shape;
+    }
+
+    /** Returns false if the template cannot match {@code tree}, which it was a candidate for. */
+    boolean mayMatch(Tree tree) {
+      if (shape.minArguments < 0 || tree.getKind() != Kind.METHOD_INVOCATION) {
+        return true;
+      }
+      int arguments = ((MethodInvocationTree) tree).getArguments().size();
+      return shape.varargs ? arguments >= shape.minArguments : arguments == shape.minArguments;
+    }
+  }
+
+  /**
+   * The trees a template root can unify with. Null {@code kinds} means any tree. The method name
+   * and arguments constrain method invocations only; a null {@code methodName} or negative {@code
+   * minArguments} means no constraint.
+   */
+  private static final class Shape {
+    static final Shape ANY = new Shape(null, null, -1, false);
+
+    @Nullable final Set<Kind> kinds;
+    @Nullable final String methodName;
+    final int minArguments;
+    final boolean varargs;
+
+    Shape(
+        @Nullable Set<Kind> kinds, @Nullable String methodName, int minArguments, boolean varargs) {
+      this.kinds = kinds;
+      this.methodName = methodName;
+      this.minArguments = minArguments;
+      this.varargs = varargs;
+    }
+
+    static Shape of(Kind first, Kind... rest) {
+      return new Shape(EnumSet.of(first, rest), null, -1, false);
+    }
+
+    /** A shape matching this shape's trees, {@code other}'s, and parenthesized trees. */
+    Shape orParenthesized(Shape other) {
+      if (kinds == null || other.kinds == null) {
+        return ANY;
+      }
+      Set<Kind> union = EnumSet.of(Kind.PARENTHESIZED);
+      union.addAll(kinds);
+      union.addAll(other.kinds);
+      return new Shape(union, null, -1, false);
+    }
+  }
+
+  static BeforeTemplateIndex create(List<? extends RefasterRule<?, ?>> rules) {
+    return new BeforeTemplateIndex(ImmutableList.copyOf(rules));
+  }
+
+  private final ImmutableList<RefasterRule<?, ?>> rules;
+  private final ImmutableMap<Kind, ImmutableList<Candidate>> byKind;
+  // the candidates for invocations of each method name that some template requires
+  private final ImmutableMap<String, ImmutableList<Candidate>> invocationsByName;
+  // the candidates for invocations of any other method
+  private final ImmutableList<Candidate> otherInvocations;
+
+  private BeforeTemplateIndex(ImmutableList<RefasterRule<?, ?>> rules) {
+    this.rules = rules;
+    List<Candidate> candidates = new ArrayList<>();
+    Map<String, List<Candidate>> invocationsByName = new LinkedHashMap<>();
+    for (int i = 0; i < rules.size(); i++) {
+      ImmutableList<? extends Template<?>> templates = rules.get(i).beforeTemplates();
+      for (int j = 0; j < templates.size(); j++) {
+        Candidate candidate = new Candidate(i, j, shape(templates.get(j)));
+        candidates.add(candidate);
+        if (candidate.shape.methodName != null
+            && !invocationsByName.containsKey(candidate.shape.methodName)) {
+          invocationsByName.put(candidate.shape.methodName, new ArrayList<Candidate>());
+        }
+      }
+    }
+
+    Map<Kind, List<Candidate>> byKind = new EnumMap<>(Kind.class);
+    for (Kind kind : Kind.values()) {
+      byKind.put(kind, new ArrayList<Candidate>());
+    }
+    List<Candidate> otherInvocations = new ArrayList<>();
+    for (Candidate candidate : candidates) {
+      Shape shape = candidate.shape;
+      for (Kind kind : shape.kinds == null ? EnumSet.allOf(Kind.class) : shape.kinds) {
+        if (kind != Kind.METHOD_INVOCATION) {
+          byKind.get(kind).add(candidate);
+        } else if (shape.methodName != null) {
+          invocationsByName.get(shape.methodName).add(candidate);
+        } else {
+          for (List<Candidate> named : invocationsByName.values()) {
+            named.add(candidate);
+          }
+          otherInvocations.add(candidate);
+        }
+      }
+    }
+
+    this.byKind = Maps.immutableEnumMap(copyValues(byKind));
+    this.invocationsByName = ImmutableMap.copyOf(copyValues(invocationsByName));
+    this.otherInvocations = ImmutableList.copyOf(otherInvocations);
+  }
+
+  private static <K> Map<K, ImmutableList<Candidate>> copyValues(Map<K, List<Candidate>> map) {
+    Map<K, ImmutableList<Candidate>> copy = new LinkedHashMap<>();
+    for (Map.Entry<K, List<Candidate>> entry : map.entrySet()) {
+      copy.put(entry.getKey(), ImmutableList.copyOf(entry.getValue()));
+    }
+    return copy;
+  }
+
+  /** The rules whose templates are indexed. */
+  ImmutableList<RefasterRule<?, ?>> rules() {
+    return rules;
+  }
+
+  /**
+   * Returns the before-templates that may match {@code tree}. Each must still be checked with
+   * {@link Candidate#mayMatch}.
+   */
+  ImmutableList<Candidate> candidates(Tree tree) {
+    if (tree.getKind() == Kind.METHOD_INVOCATION) {
+      String name = methodName(((MethodInvocationTree) tree).getMethodSelect());
+      ImmutableList<Candidate> named = name == null ? null : invocationsByName.get(name);
+      return named == null ? otherInvocations : named;
+    }
+    ImmutableList<Candidate> candidates = byKind.get(tree.getKind());
+    return candidates == null ? ImmutableList.<Candidate>of() : candidates;
+  }
+
+  @Nullable
+  private static String methodName(Tree methodSelect) {
+    switch (methodSelect.getKind()) {
+      case IDENTIFIER:
+        return ((IdentifierTree) methodSelect).getName().toString();
+      case MEMBER_SELECT:
+        return ((MemberSelectTree) methodSelect).getIdentifier().toString();
+      default:
+        return null;
+    }
+  }
+
+  private static Shape shape(Template<?> template) {
+    if (template instanceof ExpressionTemplate) {
+      return shape(((ExpressionTemplate) template).expression());
+    } else if (template instanceof BlockTemplate) {
+      return Shape.of(Kind.BLOCK);
+    }
+    return Shape.ANY;
+  }
+
+  /**
+   * Returns the shape of the trees {@code expr} can unify with. This mirrors the {@code unify},
+   * {@code visit*} and {@code defaultAction} methods of each kind of template tree, and must be
+   * kept in sync with them; anything not handled here may match any tree.
+   */
+  private static Shape shape(UExpression expr) {
+    if (expr instanceof UParens) {
+      Shape inner = shape(((UParens) expr).getExpression());
+      return inner.orParenthesized(inner);
+    } else if (expr instanceof UAnyOf) {
+      ImmutableList<UExpression> alternatives = ((UAnyOf) expr).expressions();
+      Shape shape = shape(alternatives.get(0));
+      shape = shape.orParenthesized(shape);
+      for (UExpression alternative : alternatives.subList(1, alternatives.size())) {
+        shape = shape.orParenthesized(shape(alternative));
+      }
+      return shape;
+    } else if (expr instanceof UMatches) {
+      Shape inner = shape(((UMatches) expr).expression());
+      return inner.orParenthesized(inner);
+    } else if (expr instanceof UOfKind) {
+      Shape inner = shape(((UOfKind) expr).expression());
+      Set<Kind> kinds = EnumSet.copyOf(((UOfKind) expr).allowed());
+      if (inner.kinds != null) {
+        kinds.retainAll(inner.kinds);
+      }
+      return new Shape(kinds, null, -1, false);
+    } else if (expr instanceof UBinary
+        || expr instanceof UUnary
+        || expr instanceof UAssignOp) {
+      return Shape.of(expr.getKind());
+    } else if (expr instanceof ULiteral) {
+      return literalShape(((ULiteral) expr).getValue());
+    } else if (expr instanceof UMethodInvocation) {
+      return invocationShape((UMethodInvocation) expr);
+    } else if (expr instanceof UMemberSelect) {
+      return Shape.of(Kind.MEMBER_SELECT, Kind.IDENTIFIER);
+    } else if (expr instanceof ULocalVarIdent) {
+      return Shape.of(Kind.IDENTIFIER);
+    } else if (expr instanceof UConditional) {
+      return Shape.of(Kind.CONDITIONAL_EXPRESSION);
+    } else if (expr instanceof UNewClass) {
+      return Shape.of(Kind.NEW_CLASS);
+    } else if (expr instanceof UTypeCast) {
+      return Shape.of(Kind.TYPE_CAST);
+    } else if (expr instanceof UInstanceOf) {
+      return Shape.of(Kind.INSTANCE_OF);
+    } else if (expr instanceof UAssign) {
+      return Shape.of(Kind.ASSIGNMENT);
+    } else if (expr instanceof UArrayAccess) {
+      return Shape.of(Kind.ARRAY_ACCESS);
+    } else if (expr instanceof ULambda) {
+      return Shape.of(Kind.LAMBDA_EXPRESSION);
+    } else if (expr instanceof UMemberReference) {
+      return Shape.of(Kind.MEMBER_REFERENCE);
+    } else if (expr instanceof UNewArray) {
+      return Shape.of(Kind.NEW_ARRAY);
+    }
+    return Shape.ANY;
+  }
+
+  /** See {@link ULiteral#visitLiteral}: numeric literals match regardless of their type. */
+  private static Shape literalShape(@Nullable Object value) {
+    if (value == null) {
+      return Shape.of(Kind.NULL_LITERAL);
+    } else if (value instanceof Number) {
+      return Shape.of(Kind.INT_LITERAL, Kind.LONG_LITERAL, Kind.FLOAT_LITERAL, Kind.DOUBLE_LITERAL);
+    } else if (value instanceof Boolean) {
+      return Shape.of(Kind.BOOLEAN_LITERAL);
+    } else if (value instanceof Character) {
+      return Shape.of(Kind.CHAR_LITERAL);
+    } else if (value instanceof String) {
+      return Shape.of(Kind.STRING_LITERAL);
+    }
+    return Shape.of(Kind.NULL_LITERAL, Kind.INT_LITERAL, Kind.LONG_LITERAL, Kind.FLOAT_LITERAL,
+        Kind.DOUBLE_LITERAL, Kind.BOOLEAN_LITERAL, Kind.CHAR_LITERAL, Kind.STRING_LITERAL);
+  }
+
+  /** See {@link UMethodInvocation#visitMethodInvocation} and {@link Unifier#unifyList}. */
+  private static Shape invocationShape(UMethodInvocation invocation) {
+    UExpression methodSelect = invocation.getMethodSelect();
+    String methodName = null;
+    if (methodSelect instanceof UMemberSelect) {
+      methodName = ((UMemberSelect) methodSelect).getIdentifier().contents();
+    } else if (methodSelect instanceof UStaticIdent) {
+      methodName = ((UStaticIdent) methodSelect).getName().contents();
+    }
+    List<UExpression> arguments = invocation.getArguments();
+    boolean varargs =
+        !arguments.isEmpty() && arguments.get(arguments.size() - 1) instanceof URepeated;
+    return new Shape(
+        EnumSet.of(Kind.METHOD_INVOCATION),
+        methodName,
+        varargs ? arguments.size() - 1 : arguments.size(),
+        varargs);
+  }
+}
@@ -17,15 +17,22 @@
 package com.google.errorprone.refaster;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
 import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.Maps;
 import com.google.common.reflect.TypeToken;
+import com.google.errorprone.util.PersistentHashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import javax.annotation.Nullable;
 
 /**
@@ -74,7 +81,102 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
     }
   }
   
-  private final Map<Key<?>, Object> contents;
+  /**
+   * A mutable map backed by an immutable {@link PersistentHashMap}, so that copying it takes
+   * constant time and updating it copies only the path to the updated entry. This matters because
+   * the {@link Unifier} forks its bindings at every choice point.
+   */
+  private static final class Contents extends AbstractMap<Key<?>, Object> {
+    private PersistentHashMap<Key<?>, Object> map;
+
+    Contents(PersistentHashMap<Key<?>, Object> map) {
+      this.map = map;
+    }
+
+    @Override
+    public int size() {
+      return map.size();
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+      return key != null && map.containsKey(key);
+    }
+
+    @Override
+    public Object get(@Nullable Object key) {
+      return key == null ? null : map.get(key);
+    }
+
+    @Override
+    public Object put(Key<?> key, Object value) {
+      Object previous = map.get(key);
+      map = map.put(key, value);
+      return previous;
+    }
+
+    @Override
+    public Object remove(@Nullable Object key) {
+      if (key == null) {
+        return null;
+      }
+      Object previous = map.get(key);
+      map = map.remove(key);
+      return previous;
+    }
+
+    @Override
+    public void clear() {
+      map = PersistentHashMap.empty();
+    }
+
+    @Override
+    public Set<Entry<Key<?>, Object>> entrySet() {
+      return new AbstractSet<Entry<Key<?>, Object>>() {
+        @Override
+        public int size() {
+          return map.size();
+        }
+
+        @Override
+        public Iterator<Entry<Key<?>, Object>> iterator() {
+          final List<Entry<Key<?>, Object>> entries = new ArrayList<>(map.size());
+          map.forEach(
+              new BiConsumer<Key<?>, Object>() {
+                @Override
+                public void accept(Key<?> key, Object value) {
+                  entries.add(new SimpleImmutableEntry<Key<?>, Object>(key, value));
+                }
+              });
+          final Iterator<Entry<Key<?>, Object>> iterator = entries.iterator();
+          return new Iterator<Entry<Key<?>, Object>>() {
+            private Entry<Key<?>, Object> last;
+
+            @Override
+            public boolean hasNext() {
+              return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<Key<?>, Object> next() {
+              last = iterator.next();
+              return last;
+            }
+
+            @Override
+            public void remove() {
+              checkState(last != null);
+              Contents.this.remove(last.getKey());
+              last = null;
+            }
+          };
+        }
+      };
+    }
+  }
+
+  private final Contents contents;
+  private final Map<Key<?>, Object> delegate;
   
   public static Bindings create() {
     return new Bindings();
@@ -98,20 +200,25 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
   }
   
   private Bindings() {
-    this(new HashMap<Key<?>, Object>());
+    this(new Contents(PersistentHashMap.<Key<?>, Object>empty()));
   }
 
   Bindings(Bindings bindings) {
-    this(Maps.newHashMap(bindings.contents));
+    this(new Contents(bindings.contents.map));
+  }
+
+  private Bindings(Contents contents) {
+    this(contents, contents);
   }
 
-  private Bindings(Map<Key<?>, Object> contents) {
+  private Bindings(Contents contents, Map<Key<?>, Object> delegate) {
     this.contents = contents;
+    this.delegate = delegate;
   }
 
   @Override
   protected Map<Key<?>, Object> delegate() {
-    return contents;
+    return delegate;
   }
   
   @SuppressWarnings("unchecked")
@@ -139,6 +246,6 @@ public class Bindings extends ForwardingMap<Bindings.Key<?>, Object> {
   }
   
   public Bindings unmodifiable() {
-    return new Bindings(Collections.unmodifiableMap(contents));
+    return new Bindings(contents, Collections.unmodifiableMap(contents));
   }
 }
@@ -21,6 +21,7 @@ import com.google.auto.value.AutoValue;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableClassToInstanceMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -38,7 +39,12 @@ import com.sun.tools.javac.util.Warner;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 /**
@@ -89,7 +95,8 @@ public abstract class BlockTemplate extends Template<BlockTemplateMatch> {
     if (tree instanceof JCBlock) {
       JCBlock block = (JCBlock) tree;
       ImmutableList<JCStatement> targetStatements = ImmutableList.copyOf(block.getStatements());
-      return matchesStartingAnywhere(block, 0, targetStatements, context).first()
+      return matchesStartingAnywhere(block, 0, targetStatements, context, new UnificationMemo())
+          .first()
           .or(List.<BlockTemplateMatch>nil());
     }
     return ImmutableList.of();
@@ -99,20 +106,25 @@ public abstract class BlockTemplate extends Template<BlockTemplateMatch> {
       final JCBlock block,
       final int offset, 
       final ImmutableList<? extends StatementTree> statements, 
-      final Context context) {
+      final Context context,
+      final UnificationMemo memo) {
     if (statements.isEmpty()) {
       return Choice.none();
     }
     final JCStatement firstStatement = (JCStatement) statements.get(0);
     Choice<UnifierWithUnconsumedStatements> choice =
         Choice.of(UnifierWithUnconsumedStatements.create(new Unifier(context), statements));
-    for (UStatement templateStatement : templateStatements()) {
-      choice = choice.thenChoose(templateStatement);
+    for (int i = 0; i < templateStatements().size(); i++) {
+      choice = choice.thenChoose(memo.unifications(i, templateStatements().get(i)));
     }
     return choice.thenChoose(
         new Function<UnifierWithUnconsumedStatements, Choice<List<BlockTemplateMatch>>>() {
           @Override
           public Choice<List<BlockTemplateMatch>> apply(UnifierWithUnconsumedStatements state) {
+            MemoKey key = MemoKey.create(templateStatements().size(), state);
+            if (memo.failedTypechecks.contains(key)) {
+              return Choice.none();
+            }
             Unifier unifier = state.unifier();
             Inliner inliner = unifier.createInliner();
             try {
@@ -123,12 +135,13 @@ public abstract class BlockTemplate extends Template<BlockTemplateMatch> {
                 BlockTemplateMatch match = new BlockTemplateMatch(block, checkedUnifier.get(),
                     offset, offset + consumedStatements);
                 return matchesStartingAnywhere(block, offset + consumedStatements,
-                    statements.subList(consumedStatements, statements.size()), context).transform(
-                    prepend(match));
+                    statements.subList(consumedStatements, statements.size()), context, memo)
+                    .transform(prepend(match));
               }
             } catch (CouldNotResolveImportException e) {
               // fall through
             }
+            memo.failedTypechecks.add(key);
             return Choice.none();
           }
         });
@@ -147,15 +160,105 @@ public abstract class BlockTemplate extends Template<BlockTemplateMatch> {
       JCBlock block, 
       int offset,
       final ImmutableList<? extends StatementTree> statements, 
-      final Context context) {
+      final Context context,
+      UnificationMemo memo) {
     Choice<List<BlockTemplateMatch>> choice = Choice.none();
     for (int i = 0; i < statements.size(); i++) {
       choice = choice.or(matchesStartingAtBeginning(block, offset + i,
-          statements.subList(i, statements.size()), context));
+          statements.subList(i, statements.size()), context, memo));
     }
     return choice.or(Choice.of(List.<BlockTemplateMatch>nil()));
   }
 
+  /**
+   * The state of a match of a block template against a target block after some number of template
+   * statements: the unconsumed suffix of the target block, and the bindings so far.
+   */
+  @AutoValue
+  abstract static class MemoKey {
+    static MemoKey create(int templateStatements, UnifierWithUnconsumedStatements state) {
+      return new AutoValue_BlockTemplate_MemoKey(
+          templateStatements,
+          state.unconsumedStatements().size(),
+          Bindings.create(state.unifier().getBindings()));
+    }
+
+    abstract int templateStatements();
+
+    abstract int unconsumedStatements();
+
+    abstract Bindings bindings();
+  }
+
+  /**
+   * Memoizes the unification of a block template with a single target block.
+   *
+   * <p>Different starting offsets, blanks, and the alternatives of {@code anyOf} frequently reach
+   * the same state, and without memoization the rest of the template is unified again from each of
+   * them, so the work can grow exponentially with the number of template statements. Unifying a
+   * template statement depends only on the state it starts from, so its results are computed once
+   * per state, and every later visit to that state gets forks of them.
+   */
+  private static final class UnificationMemo {
+    final Map<MemoKey, MemoizedUnifications> results = new HashMap<>();
+    final Set<MemoKey> failedTypechecks = new HashSet<>();
+
+    Function<UnifierWithUnconsumedStatements, Choice<UnifierWithUnconsumedStatements>>
+        unifications(final int index, final UStatement templateStatement) {
+      return new Function<
+          UnifierWithUnconsumedStatements, Choice<UnifierWithUnconsumedStatements>>() {
+        @Override
+        public Choice<UnifierWithUnconsumedStatements> apply(
+            UnifierWithUnconsumedStatements state) {
+          MemoKey key = MemoKey.create(index, state);
+          MemoizedUnifications result = results.get(key);
+          if (result == null) {
+            result = new MemoizedUnifications(templateStatement.apply(state));
+            results.put(key, result);
+          }
+          return Choice.fromIterable(result);
+        }
+      };
+    }
+  }
+
+  /**
+   * The unifications of a template statement from a single state, computed only as far as any
+   * visit to that state has needed them, since a match usually stops at the first one that works.
+   *
+   * <p>Later template statements mutate the unifiers they are given, so the ones computed here are
+   * never handed out directly; each visit gets forks of them.
+   */
+  private static final class MemoizedUnifications
+      implements Iterable<UnifierWithUnconsumedStatements> {
+    private final Iterator<UnifierWithUnconsumedStatements> pending;
+    private final ArrayList<UnifierWithUnconsumedStatements> computed = new ArrayList<>();
+
+    MemoizedUnifications(Choice<UnifierWithUnconsumedStatements> unifications) {
+      this.pending = unifications.asIterable().iterator();
+    }
+
+    @Override
+    public Iterator<UnifierWithUnconsumedStatements> iterator() {
+      return new AbstractIterator<UnifierWithUnconsumedStatements>() {
+        private int next = 0;
+
+        @Override
+        protected UnifierWithUnconsumedStatements computeNext() {
+          if (next == computed.size()) {
+            if (!pending.hasNext()) {
+              return endOfData();
+            }
+            computed.add(pending.next());
+          }
+          UnifierWithUnconsumedStatements unified = computed.get(next++);
+          return UnifierWithUnconsumedStatements.create(
+              unified.unifier().fork(), unified.unconsumedStatements());
+        }
+      };
+    }
+  }
+
   /**
    * Returns a {@code String} representation of a statement, including semicolon.
    */
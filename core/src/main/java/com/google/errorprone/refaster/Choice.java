@@ -176,6 +176,20 @@ public abstract class Choice<T> {
     }
   }
 
+  /**
+   * Returns a choice of the elements of {@code choices}, in iteration order. Unlike {@link #from},
+   * the elements are neither counted nor copied up front, so they can be computed lazily.
+   */
+  static <T> Choice<T> fromIterable(final Iterable<T> choices) {
+    checkNotNull(choices);
+    return new Choice<T>() {
+      @Override
+      protected Iterator<T> iterator() {
+        return choices.iterator();
+      }
+    };
+  }
+
   /**
    * Returns a choice between any of the options from any of the specified choices.
    */
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.common.primitives.Ints;
+import com.sun.tools.javac.parser.JavaTokenizer;
+import com.sun.tools.javac.parser.ScannerFactory;
+import com.sun.tools.javac.parser.Tokens.Comment;
+import com.sun.tools.javac.parser.Tokens.Comment.CommentStyle;
+import com.sun.tools.javac.parser.Tokens.TokenKind;
+import com.sun.tools.javac.util.Context;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The positions of the comments in a compilation unit. The source is lexed once, and every match
+ * of every rule is then checked for comments with a binary search, rather than by lexing the
+ * source of each match again.
+ */
+final class CommentIndex {
+
+  /** Lexes {@code source} and returns the positions of its comments. */
+  static CommentIndex create(CharSequence source, Context context) {
+    char[] buffer = source.toString().toCharArray();
+    CommentRecordingTokenizer tokenizer =
+        new CommentRecordingTokenizer(ScannerFactory.instance(context), buffer);
+    while (tokenizer.readToken().kind != TokenKind.EOF) {
+      // the tokenizer records the comments as it reads them
+    }
+    return new CommentIndex(Ints.toArray(tokenizer.starts), Ints.toArray(tokenizer.ends));
+  }
+
+  // The comments do not overlap and are lexed in source order, so both arrays are sorted.
+  private final int[] starts;
+  private final int[] ends;
+
+  private CommentIndex(int[] starts, int[] ends) {
+    this.starts = starts;
+    this.ends = ends;
+  }
+
+  /** Returns whether a comment lies entirely within the source range {@code [start, end)}. */
+  boolean containsComment(int start, int end) {
+    int i = Arrays.binarySearch(starts, start);
+    if (i < 0) {
+      i = -i - 1;
+    }
+    return i < starts.length && ends[i] <= end;
+  }
+
+  private static final class CommentRecordingTokenizer extends JavaTokenizer {
+    final List<Integer> starts = new ArrayList<>();
+    final List<Integer> ends = new ArrayList<>();
+
+    CommentRecordingTokenizer(ScannerFactory fac, char[] buffer) {
+      super(fac, buffer, buffer.length);
+    }
+
+    @Override
+    protected Comment processComment(int pos, int endPos, CommentStyle style) {
+      starts.add(pos);
+      ends.add(endPos);
+      return super.processComment(pos, endPos, style);
+    }
+  }
+}
@@ -89,6 +89,10 @@ public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M
     return result;
   }
   
+  // built on first use, including after deserialization
+  @Nullable private transient volatile BeforeTemplateIndex index;
+  @Nullable private transient volatile TokenPrefilter prefilter;
+
   RefasterRule() {}
   
   abstract String qualifiedTemplateClass();
@@ -101,8 +105,23 @@ public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M
   
   @Override
   public void apply(TreePath path, Context context, DescriptionListener listener) {
-    RefasterScanner.create(this, listener)
-        .scan(path, prepareContext(context, (JCCompilationUnit) path.getCompilationUnit()));
+    RefasterScanner.apply(path, index(), prefilter(), context, listener);
+  }
+
+  private BeforeTemplateIndex index() {
+    BeforeTemplateIndex result = index;
+    if (result == null) {
+      result = index = BeforeTemplateIndex.create(ImmutableList.of(this));
+    }
+    return result;
+  }
+
+  private TokenPrefilter prefilter() {
+    TokenPrefilter result = prefilter;
+    if (result == null) {
+      result = prefilter = TokenPrefilter.create(ImmutableList.of(this));
+    }
+    return result;
   }
 
   boolean rejectMatchesWithComments() {
@@ -112,7 +131,7 @@ public abstract class RefasterRule<M extends TemplateMatch, T extends Template<M
   static final Context.Key<ImmutableList<UTypeVar>> RULE_TYPE_VARS = 
       new Context.Key<>();
   
-  private Context prepareContext(Context baseContext, JCCompilationUnit compilationUnit) {
+  Context prepareContext(Context baseContext, JCCompilationUnit compilationUnit) {
     Context context = new SubContext(baseContext);
     if (context.get(JavaFileManager.class) == null) {
       JavacFileManager.preRegister(context);
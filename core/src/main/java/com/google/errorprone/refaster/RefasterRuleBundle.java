@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableClassToInstanceMap;
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.CodeTransformer;
+import com.google.errorprone.CompositeCodeTransformer;
+import com.google.errorprone.DescriptionListener;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.util.Context;
+import java.io.Serializable;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * A group of {@link RefasterRule}s that are applied together, in a single traversal of each
+ * compilation unit. The descriptions reported are the same, and in the same order, as those of the
+ * rules applied one at a time.
+ *
+ * <p>The before-templates of all of the rules are indexed by the shape of the trees they can match
+ * (see {@link BeforeTemplateIndex}), so each tree is only offered to the templates that could
+ * match it, and rules whose templates mention names that do not occur in the source of a
+ * compilation unit are not tried on it at all (see {@link TokenPrefilter}).
+ */
+@AutoValue
+public abstract class RefasterRuleBundle implements CodeTransformer, Serializable {
+  public static RefasterRuleBundle create(Iterable<? extends RefasterRule<?, ?>> rules) {
+    return new AutoValue_RefasterRuleBundle(ImmutableList.<RefasterRule<?, ?>>copyOf(rules));
+  }
+
+  /**
+   * Combines {@code transformers} into one {@link CodeTransformer}, like {@link
+   * CompositeCodeTransformer#compose}, but applies each run of consecutive {@link RefasterRule}s
+   * with a single {@link RefasterRuleBundle}. Nested {@link CompositeCodeTransformer}s and bundles
+   * are flattened first.
+   */
+  public static CodeTransformer compose(Iterable<? extends CodeTransformer> transformers) {
+    List<CodeTransformer> flattened = new ArrayList<>();
+    flatten(transformers, flattened);
+    ImmutableList.Builder<CodeTransformer> result = ImmutableList.builder();
+    List<RefasterRule<?, ?>> run = new ArrayList<>();
+    for (CodeTransformer transformer : flattened) {
+      if (transformer instanceof RefasterRule) {
+        run.add((RefasterRule<?, ?>) transformer);
+      } else {
+        addRun(run, result);
+        result.add(transformer);
+      }
+    }
+    addRun(run, result);
+    ImmutableList<CodeTransformer> composed = result.build();
+    return composed.size() == 1 ? composed.get(0) : CompositeCodeTransformer.compose(composed);
+  }
+
+  private static void flatten(
+      Iterable<? extends CodeTransformer> transformers, List<CodeTransformer> flattened) {
+    for (CodeTransformer transformer : transformers) {
+      if (transformer instanceof CompositeCodeTransformer) {
+        flatten(((CompositeCodeTransformer) transformer).transformers(), flattened);
+      } else if (transformer instanceof RefasterRuleBundle) {
+        flattened.addAll(((RefasterRuleBundle) transformer).rules());
+      } else {
+        flattened.add(transformer);
+      }
+    }
+  }
+
+  private static void addRun(
+      List<RefasterRule<?, ?>> run, ImmutableList.Builder<CodeTransformer> result) {
+    if (run.size() == 1) {
+      result.add(run.get(0));
+    } else if (!run.isEmpty()) {
+      result.add(create(run));
+    }
+    run.clear();
+  }
+
+  // built on first use, including after deserialization
+  @Nullable private transient volatile BeforeTemplateIndex index;
+  @Nullable private transient volatile TokenPrefilter prefilter;
+
+  RefasterRuleBundle() {}
+
+  public abstract ImmutableList<RefasterRule<?, ?>> rules();
+
+  @Override
+  public void apply(TreePath path, Context context, DescriptionListener listener) {
+    RefasterScanner.apply(path, index(), prefilter(), context, listener);
+  }
+
+  private BeforeTemplateIndex index() {
+    BeforeTemplateIndex result = index;
+    if (result == null) {
+      result = index = BeforeTemplateIndex.create(rules());
+    }
+    return result;
+  }
+
+  private TokenPrefilter prefilter() {
+    TokenPrefilter result = prefilter;
+    if (result == null) {
+      result = prefilter = TokenPrefilter.create(rules());
+    }
+    return result;
+  }
+
+  @Override
+  public ImmutableClassToInstanceMap<Annotation> annotations() {
+    return ImmutableClassToInstanceMap.<Annotation>builder().build();
+  }
+}
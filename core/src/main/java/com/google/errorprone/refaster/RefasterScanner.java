@@ -16,11 +16,13 @@
 
 package com.google.errorprone.refaster;
 
-import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.errorprone.BugPattern.SeverityLevel;
 import com.google.errorprone.DescriptionListener;
 import com.google.errorprone.fixes.SuggestedFix;
 import com.google.errorprone.matchers.Description;
+import com.google.errorprone.refaster.BeforeTemplateIndex.Candidate;
 import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.DoWhileLoopTree;
@@ -30,89 +32,195 @@ import com.sun.source.tree.SynchronizedTree;
 import com.sun.source.tree.Tree;
 import com.sun.source.tree.WhileLoopTree;
 import com.sun.source.util.SimpleTreeVisitor;
+import com.sun.source.util.TreePath;
 import com.sun.source.util.TreeScanner;
 import com.sun.tools.javac.code.Symbol;
-import com.sun.tools.javac.parser.JavaTokenizer;
-import com.sun.tools.javac.parser.ScannerFactory;
-import com.sun.tools.javac.parser.Tokens.Token;
-import com.sun.tools.javac.parser.Tokens.TokenKind;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
 import com.sun.tools.javac.tree.JCTree.JCStatement;
 import com.sun.tools.javac.tree.TreeMaker;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.ListBuffer;
-import java.nio.CharBuffer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * Scanner that outputs suggested fixes generated by a {@code RefasterMatcher}.
- * 
+ *
+ * <p>A single scan offers every tree to all of the rules it was created with, so a bundle of rules
+ * costs one traversal of the compilation unit rather than one per rule, and each tree is only
+ * offered to the templates that {@link BeforeTemplateIndex} says could match it. Each rule is still
+ * skipped inside its own template class, and its descriptions are reported after the scan, in rule
+ * order, exactly as if the rules had been applied one after another.
+ *
  * @author lowasser@google.com (Louis Wasserman)
  */
-@AutoValue
-abstract class RefasterScanner<M extends TemplateMatch, T extends Template<M>> 
-    extends TreeScanner<Void, Context> {
-  static <M extends TemplateMatch, T extends Template<M>> RefasterScanner<M, T> create(
-      RefasterRule<M, T> rule, DescriptionListener listener) {
-    return new AutoValue_RefasterScanner<>(rule, listener);
+final class RefasterScanner extends TreeScanner<Void, Void> {
+
+  /**
+   * Scans {@code path} with each of the rules in {@code index}, reporting the matches to {@code
+   * listener}. {@code prefilter} must have been created for the same rules; the rules it rules out
+   * for the compilation unit are not tried at all.
+   */
+  static void apply(
+      TreePath path,
+      BeforeTemplateIndex index,
+      TokenPrefilter prefilter,
+      Context context,
+      DescriptionListener listener) {
+    JCCompilationUnit compilationUnit = (JCCompilationUnit) path.getCompilationUnit();
+    boolean[] mayMatch;
+    try {
+      mayMatch = prefilter.mayMatch(compilationUnit.getSourceFile().getCharContent(true));
+    } catch (IOException e) {
+      mayMatch = new boolean[index.rules().size()];
+      Arrays.fill(mayMatch, true);
+    }
+    RefasterScanner scanner = new RefasterScanner(index, mayMatch, context, compilationUnit);
+    if (scanner.activeRules > 0) {
+      scanner.scan(path, null);
+    }
+    for (List<Description> descriptions : scanner.descriptions) {
+      for (Description description : descriptions) {
+        listener.onDescribed(description);
+      }
+    }
+  }
+
+  private final BeforeTemplateIndex index;
+  private final ImmutableList<RefasterRule<?, ?>> rules;
+  private final Context context;
+  // the context of each rule that may match the compilation unit, and null for the others
+  private final Context[] ruleContexts;
+  private final JCCompilationUnit compilationUnit;
+  // the indices of the rules declared by each template class
+  private final ImmutableListMultimap<String, Integer> rulesByTemplateClass;
+  // the descriptions found by each rule
+  private final List<List<Description>> descriptions;
+  // whether each rule is skipped, because it cannot match the compilation unit or because the scan
+  // is inside its template class
+  private final boolean[] skipped;
+  private int activeRules;
+  // the comments of the compilation unit, shared by all of the rules
+  @Nullable private CommentIndex comments;
+
+  private RefasterScanner(
+      BeforeTemplateIndex index,
+      boolean[] mayMatch,
+      Context context,
+      JCCompilationUnit compilationUnit) {
+    this.index = index;
+    this.rules = index.rules();
+    this.context = context;
+    this.compilationUnit = compilationUnit;
+    ImmutableListMultimap.Builder<String, Integer> rulesByTemplateClass =
+        ImmutableListMultimap.builder();
+    this.descriptions = new ArrayList<>(rules.size());
+    for (int i = 0; i < rules.size(); i++) {
+      rulesByTemplateClass.put(rules.get(i).qualifiedTemplateClass(), i);
+      descriptions.add(new ArrayList<Description>());
+    }
+    this.rulesByTemplateClass = rulesByTemplateClass.build();
+    this.skipped = new boolean[rules.size()];
+    this.ruleContexts = new Context[rules.size()];
+    for (int i = 0; i < rules.size(); i++) {
+      skipped[i] = !mayMatch[i];
+      if (mayMatch[i]) {
+        ruleContexts[i] = rules.get(i).prepareContext(context, compilationUnit);
+        activeRules++;
+      }
+    }
   }
-  
-  abstract RefasterRule<M, T> rule();
 
-  abstract DescriptionListener listener();
-  
   @Override
-  public Void visitClass(ClassTree node, Context context) {
+  public Void visitClass(ClassTree node, Void v) {
     Symbol sym = ASTHelpers.getSymbol(node);
-    if (sym == null || !sym.getQualifiedName().contentEquals(rule().qualifiedTemplateClass())) {
+    List<Integer> entered = new ArrayList<>();
+    if (sym != null) {
+      for (int rule : rulesByTemplateClass.get(sym.getQualifiedName().toString())) {
+        if (!skipped[rule]) {
+          skipped[rule] = true;
+          activeRules--;
+          entered.add(rule);
+        }
+      }
+    }
+    if (activeRules > 0) {
       ListBuffer<JCStatement> statements = new ListBuffer<>();
       for (Tree tree : node.getMembers()) {
         if (tree instanceof JCStatement) {
           statements.append((JCStatement) tree);
         } else {
-          tree.accept(this, context);
+          tree.accept(this, null);
         }
       }
-      scan(TreeMaker.instance(context).Block(0, statements.toList()), context);
+      scan(TreeMaker.instance(context).Block(0, statements.toList()), null);
+    }
+    for (int rule : entered) {
+      skipped[rule] = false;
+      activeRules++;
     }
     return null;
   }
 
   @Override
-  public Void scan(Tree tree, Context context) {
+  public Void scan(Tree tree, Void v) {
     if (tree == null) {
       return null;
     }
-    JCCompilationUnit compilationUnit = context.get(JCCompilationUnit.class);
-    for (T beforeTemplate : rule().beforeTemplates()) {
-      matchLoop: for (M match : beforeTemplate.match((JCTree) tree, context)) {
-        if (rule().rejectMatchesWithComments()) {
-          String matchContents = match.getRange(compilationUnit);
-          JavaTokenizer tokenizer = new JavaTokenizer(ScannerFactory.instance(context), 
-              CharBuffer.wrap(matchContents)) {};
-          for (Token token = tokenizer.readToken(); token.kind != TokenKind.EOF;
-              token = tokenizer.readToken()) {
-            if (token.comments != null && !token.comments.isEmpty()) {
-              continue matchLoop;
-            }
-          }
-        }
-        Description.Builder builder = Description.builder(match.getLocation(),
-            rule().qualifiedTemplateClass(), "", SeverityLevel.WARNING, "");
-            
-        if (rule().afterTemplates().isEmpty()) {
-          builder.addFix(SuggestedFix.prefixWith(match.getLocation(), "/* match found */ "));
-        } else {
-          for (T afterTemplate : rule().afterTemplates()) {
-            builder.addFix(afterTemplate.replace(match));
-          }
+    for (Candidate candidate : index.candidates(tree)) {
+      int rule = candidate.rule;
+      if (!skipped[rule] && candidate.mayMatch(tree)) {
+        match(rules.get(rule), candidate.template, (JCTree) tree, ruleContexts[rule],
+            descriptions.get(rule));
+      }
+    }
+    return super.scan(tree, v);
+  }
+
+  private <M extends TemplateMatch, T extends Template<M>> void match(
+      RefasterRule<M, T> rule,
+      int template,
+      JCTree tree,
+      Context context,
+      List<Description> descriptions) {
+    T beforeTemplate = rule.beforeTemplates().get(template);
+    for (M match : beforeTemplate.match(tree, context)) {
+      if (rule.rejectMatchesWithComments()
+          && comments(context)
+              .containsComment(match.getStartPosition(), match.getEndPosition(compilationUnit))) {
+        continue;
+      }
+      Description.Builder builder = Description.builder(match.getLocation(),
+          rule.qualifiedTemplateClass(), "", SeverityLevel.WARNING, "");
+
+      if (rule.afterTemplates().isEmpty()) {
+        builder.addFix(SuggestedFix.prefixWith(match.getLocation(), "/* match found */ "));
+      } else {
+        for (T afterTemplate : rule.afterTemplates()) {
+          builder.addFix(afterTemplate.replace(match));
         }
-        listener().onDescribed(builder.build());
       }
+      descriptions.add(builder.build());
     }
-    return super.scan(tree, context);
   }
-  
+
+  /** Returns the comments of the compilation unit, lexing it the first time they are needed. */
+  private CommentIndex comments(Context context) {
+    if (comments == null) {
+      try {
+        comments =
+            CommentIndex.create(compilationUnit.getSourceFile().getCharContent(true), context);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return comments;
+  }
+
   private static final SimpleTreeVisitor<Tree, Void> SKIP_PARENS =
       new SimpleTreeVisitor<Tree, Void>() {
         @Override
@@ -132,31 +240,31 @@ abstract class RefasterScanner<M extends TemplateMatch, T extends Template<M>>
    */
 
   @Override
-  public Void visitDoWhileLoop(DoWhileLoopTree node, Context context) {
-    scan(node.getStatement(), context);
-    scan(SKIP_PARENS.visit(node.getCondition(), null), context);
+  public Void visitDoWhileLoop(DoWhileLoopTree node, Void v) {
+    scan(node.getStatement(), null);
+    scan(SKIP_PARENS.visit(node.getCondition(), null), null);
     return null;
   }
 
   @Override
-  public Void visitWhileLoop(WhileLoopTree node, Context context) {
-    scan(SKIP_PARENS.visit(node.getCondition(), null), context);
-    scan(node.getStatement(), context);
+  public Void visitWhileLoop(WhileLoopTree node, Void v) {
+    scan(SKIP_PARENS.visit(node.getCondition(), null), null);
+    scan(node.getStatement(), null);
     return null;
   }
 
   @Override
-  public Void visitSynchronized(SynchronizedTree node, Context context) {
-    scan(SKIP_PARENS.visit(node.getExpression(), null), context);
-    scan(node.getBlock(), context);
+  public Void visitSynchronized(SynchronizedTree node, Void v) {
+    scan(SKIP_PARENS.visit(node.getExpression(), null), null);
+    scan(node.getBlock(), null);
     return null;
   }
 
   @Override
-  public Void visitIf(IfTree node, Context context) {
-    scan(SKIP_PARENS.visit(node.getCondition(), null), context);
-    scan(node.getThenStatement(), context);
-    scan(node.getElseStatement(), context);
+  public Void visitIf(IfTree node, Void v) {
+    scan(SKIP_PARENS.visit(node.getCondition(), null), null);
+    scan(node.getThenStatement(), null);
+    scan(node.getElseStatement(), null);
     return null;
   }
 }
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Rules out {@link RefasterRule}s that cannot match a compilation unit, by checking that its source
+ * contains the tokens every match of a before-template must contain: the names of the methods and
+ * fields the template refers to, and its string literals.
+ *
+ * <p>All of the tokens of a group of rules are searched for at once, in a single pass over the
+ * source, with an Aho-Corasick automaton.
+ */
+final class TokenPrefilter {
+
+  /**
+   * If a source file contains a unicode escape, its tokens may be spelled differently from the
+   * names in the templates, so every rule may match.
+   */
+  private static final String UNICODE_ESCAPE = "\\u";
+
+  static TokenPrefilter create(List<? extends RefasterRule<?, ?>> rules) {
+    Map<String, Integer> tokenIds = new LinkedHashMap<>();
+    tokenIds.put(UNICODE_ESCAPE, 0);
+    int[][][] requiredTokens = new int[rules.size()][][];
+    for (int i = 0; i < rules.size(); i++) {
+      ImmutableList<? extends Template<?>> templates = rules.get(i).beforeTemplates();
+      requiredTokens[i] = new int[templates.size()][];
+      for (int j = 0; j < templates.size(); j++) {
+        ImmutableSet<String> tokens = requiredTokens(templates.get(j));
+        int[] ids = new int[tokens.size()];
+        int k = 0;
+        for (String token : tokens) {
+          Integer id = tokenIds.get(token);
+          if (id == null) {
+            id = tokenIds.size();
+            tokenIds.put(token, id);
+          }
+          ids[k++] = id;
+        }
+        requiredTokens[i][j] = ids;
+      }
+    }
+    return new TokenPrefilter(
+        new Automaton(ImmutableList.copyOf(tokenIds.keySet())), requiredTokens);
+  }
+
+  private final Automaton automaton;
+  // the ids of the tokens required by each before-template of each rule
+  private final int[][][] requiredTokens;
+
+  private TokenPrefilter(Automaton automaton, int[][][] requiredTokens) {
+    this.automaton = automaton;
+    this.requiredTokens = requiredTokens;
+  }
+
+  /**
+   * Returns, for each rule, whether it may match a compilation unit with the given source. A rule
+   * may match if the source contains all of the tokens required by any one of its templates.
+   */
+  boolean[] mayMatch(CharSequence source) {
+    boolean[] found = automaton.find(source);
+    boolean[] result = new boolean[requiredTokens.length];
+    for (int i = 0; i < requiredTokens.length; i++) {
+      result[i] = found[0] || anyTemplateMayMatch(requiredTokens[i], found);
+    }
+    return result;
+  }
+
+  private static boolean anyTemplateMayMatch(int[][] templates, boolean[] found) {
+    templates:
+    for (int[] tokens : templates) {
+      for (int token : tokens) {
+        if (!found[token]) {
+          continue templates;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns tokens that appear in the source of every tree {@code template} can match. Only the
+   * parts of the template that must unify with some part of the target are considered: not
+   * placeholders, alternatives in {@code anyOf}, or repeated arguments.
+   */
+  @VisibleForTesting
+  static ImmutableSet<String> requiredTokens(Template<?> template) {
+    Set<String> tokens = new LinkedHashSet<>();
+    if (template instanceof ExpressionTemplate) {
+      collect(((ExpressionTemplate) template).expression(), tokens);
+    } else if (template instanceof BlockTemplate) {
+      for (UStatement statement : ((BlockTemplate) template).templateStatements()) {
+        collect(statement, tokens);
+      }
+    }
+    return ImmutableSet.copyOf(tokens);
+  }
+
+  private static void collect(@Nullable Object tree, Set<String> tokens) {
+    if (tree instanceof UMethodInvocation) {
+      collect(((UMethodInvocation) tree).getMethodSelect(), tokens);
+      collectAll(((UMethodInvocation) tree).getArguments(), tokens);
+    } else if (tree instanceof UMemberSelect) {
+      // A member select also matches an identifier with the same name.
+      tokens.add(((UMemberSelect) tree).getIdentifier().contents());
+      collect(((UMemberSelect) tree).getExpression(), tokens);
+    } else if (tree instanceof UStaticIdent) {
+      tokens.add(((UStaticIdent) tree).getName().contents());
+    } else if (tree instanceof ULiteral) {
+      Object value = ((ULiteral) tree).getValue();
+      if (value instanceof String && isPlainStringLiteral((String) value)) {
+        tokens.add('"' + (String) value + '"');
+      }
+    } else if (tree instanceof UParens) {
+      collect(((UParens) tree).getExpression(), tokens);
+    } else if (tree instanceof UMatches) {
+      collect(((UMatches) tree).expression(), tokens);
+    } else if (tree instanceof UOfKind) {
+      collect(((UOfKind) tree).expression(), tokens);
+    } else if (tree instanceof UBinary) {
+      collect(((UBinary) tree).getLeftOperand(), tokens);
+      collect(((UBinary) tree).getRightOperand(), tokens);
+    } else if (tree instanceof UUnary) {
+      collect(((UUnary) tree).getExpression(), tokens);
+    } else if (tree instanceof UAssign) {
+      collect(((UAssign) tree).getVariable(), tokens);
+      collect(((UAssign) tree).getExpression(), tokens);
+    } else if (tree instanceof UAssignOp) {
+      collect(((UAssignOp) tree).getVariable(), tokens);
+      collect(((UAssignOp) tree).getExpression(), tokens);
+    } else if (tree instanceof UConditional) {
+      collect(((UConditional) tree).getCondition(), tokens);
+      collect(((UConditional) tree).getTrueExpression(), tokens);
+      collect(((UConditional) tree).getFalseExpression(), tokens);
+    } else if (tree instanceof UTypeCast) {
+      collect(((UTypeCast) tree).getExpression(), tokens);
+    } else if (tree instanceof UInstanceOf) {
+      collect(((UInstanceOf) tree).getExpression(), tokens);
+    } else if (tree instanceof UArrayAccess) {
+      collect(((UArrayAccess) tree).getExpression(), tokens);
+      collect(((UArrayAccess) tree).getIndex(), tokens);
+    } else if (tree instanceof UNewClass) {
+      collectAll(((UNewClass) tree).getArguments(), tokens);
+    } else if (tree instanceof UExpressionStatement) {
+      collect(((UExpressionStatement) tree).getExpression(), tokens);
+    } else if (tree instanceof UReturn) {
+      collect(((UReturn) tree).getExpression(), tokens);
+    } else if (tree instanceof UThrow) {
+      collect(((UThrow) tree).getExpression(), tokens);
+    } else if (tree instanceof UVariableDecl) {
+      collect(((UVariableDecl) tree).getInitializer(), tokens);
+    }
+  }
+
+  private static void collectAll(List<UExpression> trees, Set<String> tokens) {
+    for (UExpression tree : trees) {
+      collect(tree, tokens);
+    }
+  }
+
+  /** Whether a string literal with this value is written the same way in every source file. */
+  private static boolean isPlainStringLiteral(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < ' ' || c > '~' || c == '"' || c == '\\') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** An Aho-Corasick automaton that finds which of a set of strings occur in a text. */
+  @VisibleForTesting
+  static final class Automaton {
+    // the outgoing transitions of each state, sorted by character
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] failure;
+    // the token ending at each state, or -1
+    private final int[] output;
+    // the nearest state on the failure chain of each state that has an output, or 0
+    private final int[] outputLink;
+    private final int tokenCount;
+
+    Automaton(List<String> tokens) {
+      this.tokenCount = tokens.size();
+      List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+      List<Integer> outputs = new ArrayList<>();
+      trie.add(new TreeMap<Character, Integer>());
+      outputs.add(-1);
+      for (int id = 0; id < tokens.size(); id++) {
+        int state = 0;
+        for (char c : tokens.get(id).toCharArray()) {
+          Integer next = trie.get(state).get(c);
+          if (next == null) {
+            next = trie.size();
+            trie.add(new TreeMap<Character, Integer>());
+            outputs.add(-1);
+            trie.get(state).put(c, next);
+          }
+          state = next;
+        }
+        if (state != 0) {
+          outputs.set(state, id);
+        }
+      }
+
+      int states = trie.size();
+      keys = new char[states][];
+      targets = new int[states][];
+      output = new int[states];
+      for (int state = 0; state < states; state++) {
+        TreeMap<Character, Integer> transitions = trie.get(state);
+        keys[state] = new char[transitions.size()];
+        targets[state] = new int[transitions.size()];
+        int i = 0;
+        for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+          keys[state][i] = transition.getKey();
+          targets[state][i] = transition.getValue();
+          i++;
+        }
+        output[state] = outputs.get(state);
+      }
+
+      // Compute the failure links breadth-first, so that shallower states are done first.
+      failure = new int[states];
+      outputLink = new int[states];
+      Deque<Integer> queue = new ArrayDeque<>();
+      for (int child : targets[0]) {
+        queue.add(child);
+      }
+      while (!queue.isEmpty()) {
+        int state = queue.remove();
+        for (int i = 0; i < keys[state].length; i++) {
+          int child = targets[state][i];
+          failure[child] = state == 0 ? 0 : step(failure[state], keys[state][i]);
+          outputLink[child] =
+              output[failure[child]] >= 0 ? failure[child] : outputLink[failure[child]];
+          queue.add(child);
+        }
+      }
+    }
+
+    private int step(int state, char c) {
+      while (true) {
+        int i = Arrays.binarySearch(keys[state], c);
+        if (i >= 0) {
+          return targets[state][i];
+        }
+        if (state == 0) {
+          return 0;
+        }
+        state = failure[state];
+      }
+    }
+
+    /** Returns which of the tokens occur in {@code text}, indexed by token id. */
+    boolean[] find(CharSequence text) {
+      boolean[] found = new boolean[tokenCount];
+      int remaining = tokenCount;
+      int state = 0;
+      for (int i = 0; i < text.length() && remaining > 0; i++) {
+        state = step(state, text.charAt(i));
+        for (int s = output[state] >= 0 ? state : outputLink[state]; s != 0; s = outputLink[s]) {
+          if (!found[output[s]]) {
+            found[output[s]] = true;
+            remaining--;
+          }
+        }
+      }
+      return found;
+    }
+  }
+}
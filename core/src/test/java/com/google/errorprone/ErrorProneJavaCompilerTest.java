@@ -286,6 +286,17 @@ public class ErrorProneJavaCompilerTest {
     assertThat(result.diagnosticHelper.getDiagnostics()).isEmpty();
   }
 
+  @Test
+  public void testUnwritableProfileDoesNotFailCompilation() throws Exception {
+    String profile = tempDir.newFile("notADirectory").getAbsolutePath() + "/profile.txt";
+    CompilationResult result =
+        doCompile(
+            Arrays.asList("bugpatterns/testdata/SelfAssignmentPositiveCases1.java"),
+            Arrays.asList("-XepProfile:" + profile),
+            Arrays.<Class<? extends BugChecker>>asList(Finally.class));
+    assertThat(result.succeeded).isTrue();
+  }
+
   @Test
   public void testSeverityResetsAfterOverride() throws Exception {
     DiagnosticTestHelper diagnosticHelper = new DiagnosticTestHelper();
@@ -20,7 +20,9 @@ import static com.google.common.collect.MoreCollectors.onlyElement;
 import static com.google.common.truth.Truth.assertThat;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Locale.ENGLISH;
+import static org.junit.Assert.fail;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.jimfs.Configuration;
 import com.google.common.jimfs.Jimfs;
@@ -82,4 +84,27 @@ public class ErrorProneJavacPluginTest {
             .collect(onlyElement());
     assertThat(diagnostic.getMessage(ENGLISH)).contains("[CollectionIncompatibleType]");
   }
+
+  @Test
+  public void profileNotSupported() throws IOException {
+    FileSystem fileSystem = Jimfs.newFileSystem(Configuration.unix());
+    Path source = fileSystem.getPath("Test.java");
+    Files.write(source, ImmutableList.of("class Test {}"), UTF_8);
+    JavacFileManager fileManager = new JavacFileManager(new Context(), false, UTF_8);
+    JavacTask task =
+        JavacTool.create()
+            .getTask(
+                null,
+                fileManager,
+                new DiagnosticCollector<JavaFileObject>(),
+                ImmutableList.of("-Xplugin:ErrorProne -XepProfile:profile.txt"),
+                ImmutableList.of(),
+                fileManager.getJavaFileObjects(source));
+    try {
+      task.call();
+      fail();
+    } catch (RuntimeException e) {
+      assertThat(Throwables.getRootCause(e).getMessage()).contains("-XepProfile");
+    }
+  }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharStreams;
+import com.google.testing.compile.JavaFileObjects;
+import com.sun.tools.javac.api.JavacTaskImpl;
+import com.sun.tools.javac.api.JavacTool;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.util.Context;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** {@link TypeResolutionCache}Test */
+@RunWith(JUnit4.class)
+public class TypeResolutionCacheTest {
+
+  private Context context;
+
+  @Before
+  public void setUp() {
+    JavacTaskImpl task =
+        (JavacTaskImpl)
+            JavacTool.create()
+                .getTask(
+                    CharStreams.nullWriter(),
+                    null,
+                    null,
+                    ImmutableList.<String>of(),
+                    null,
+                    ImmutableList.of(
+                        JavaFileObjects.forSourceLines("test.Test", "class Test {}")));
+    task.analyze();
+    context = task.getContext();
+  }
+
+  @Test
+  public void cachesResolvedTypes() {
+    TypeResolutionCache cache = TypeResolutionCache.instance(context);
+    assertThat(cache.getType("java.lang.String")).isSameAs(Symtab.instance(context).stringType);
+    assertThat(cache.getType("java.lang.String")).isSameAs(Symtab.instance(context).stringType);
+    assertThat(cache.missCount()).isEqualTo(1);
+    assertThat(cache.hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void cachesUnresolvedTypesPerCompilationUnit() {
+    TypeResolutionCache cache = TypeResolutionCache.instance(context);
+    assertThat(cache.getType("does.not.Exist")).isNull();
+    assertThat(cache.getType("does.not.Exist")).isNull();
+    assertThat(cache.missCount()).isEqualTo(1);
+    assertThat(cache.negativeHitCount()).isEqualTo(1);
+
+    cache.enterCompilationUnit();
+    assertThat(cache.getType("does.not.Exist")).isNull();
+    assertThat(cache.missCount()).isEqualTo(2);
+    assertThat(cache.negativeHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void sharedWithSubContexts() {
+    TypeResolutionCache cache = TypeResolutionCache.instance(context);
+    assertThat(TypeResolutionCache.instance(new SubContext(context))).isSameAs(cache);
+    assertThat(new VisitorState(new SubContext(context)).getTypeFromString("int"))
+        .isSameAs(Symtab.instance(context).intType);
+    assertThat(cache.missCount()).isEqualTo(1);
+  }
+}
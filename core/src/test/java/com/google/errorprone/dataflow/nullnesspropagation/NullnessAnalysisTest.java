@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.dataflow.nullnesspropagation;
+
+import static com.google.errorprone.BugPattern.Category.JDK;
+import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+import static com.google.errorprone.matchers.Description.NO_MATCH;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.CompilationTestHelper;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.dataflow.DataFlow;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.code.Symbol.MethodSymbol;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link NullnessAnalysis}. */
+@RunWith(JUnit4.class)
+public class NullnessAnalysisTest {
+
+  /** Reports the nullness of the argument of each call to {@code triggerNullnessChecker}. */
+  @BugPattern(
+    name = "NullnessChecker",
+    category = JDK,
+    summary = "Reports the nullness of triggerNullnessChecker's argument",
+    severity = ERROR
+  )
+  public static class NullnessChecker extends BugChecker implements MethodInvocationTreeMatcher {
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      MethodSymbol sym = ASTHelpers.getSymbol(tree);
+      if (sym == null || !sym.getSimpleName().contentEquals("triggerNullnessChecker")) {
+        return NO_MATCH;
+      }
+      ExpressionTree argument = tree.getArguments().get(0);
+      Nullness nullness =
+          NullnessAnalysis.instance(state.context)
+              .getNullness(new TreePath(state.getPath(), argument), state.context);
+      ImmutableMultiset<String> bailouts = DataFlow.getBailouts(state.context);
+      return buildDescription(tree)
+          .setMessage("(" + nullness + ")" + (bailouts.isEmpty() ? "" : " " + bailouts))
+          .build();
+    }
+  }
+
+  /**
+   * Reports the nullness of the argument of each call to {@code triggerNullnessChecker}, the
+   * method it was computed for, and whether the results for the method were reused.
+   */
+  @BugPattern(
+    name = "MethodNullnessChecker",
+    category = JDK,
+    summary = "Reports the method nullness of triggerNullnessChecker's argument",
+    severity = ERROR
+  )
+  public static class MethodNullnessChecker extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    private MethodNullness previous;
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      MethodSymbol sym = ASTHelpers.getSymbol(tree);
+      if (sym == null || !sym.getSimpleName().contentEquals("triggerNullnessChecker")) {
+        return NO_MATCH;
+      }
+      MethodNullness method =
+          NullnessAnalysis.instance(state.context)
+              .getMethodNullness(state.getPath(), state.context);
+      String message =
+          String.format(
+              "(%s) in %s%s",
+              method.getNullness(tree.getArguments().get(0)),
+              method.method() instanceof MethodTree
+                  ? ((MethodTree) method.method()).getName()
+                  : "lambda",
+              method == previous ? ", reused" : "");
+      previous = method;
+      return buildDescription(tree).setMessage(message).build();
+    }
+  }
+
+  @Test
+  public void methodNullness() {
+    CompilationTestHelper.newInstance(MethodNullnessChecker.class, getClass())
+        .addSourceLines(
+            "test/Test.java",
+            "package test;",
+            "public class Test {",
+            "  static void triggerNullnessChecker(Object o) {}",
+            "  void f() {",
+            "    Object o = null;",
+            "    // BUG: Diagnostic contains: (Null) in f",
+            "    triggerNullnessChecker(o);",
+            "    o = \"\";",
+            "    // BUG: Diagnostic contains: (Non-null) in f, reused",
+            "    triggerNullnessChecker(o);",
+            "    Runnable r = () -> {",
+            "      Object x = null;",
+            "      // BUG: Diagnostic contains: (Null) in lambda",
+            "      triggerNullnessChecker(x);",
+            "    };",
+            "  }",
+            "  void g() {",
+            "    // BUG: Diagnostic contains: (Non-null) in g",
+            "    triggerNullnessChecker(\"\");",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  @Test
+  public void mutuallyReferencingInitializers() {
+    CompilationTestHelper.newInstance(NullnessChecker.class, getClass())
+        .addSourceLines(
+            "test/Test.java",
+            "package test;",
+            "public class Test {",
+            "  static final boolean FLAG = Boolean.getBoolean(\"flag\");",
+            "  static final Object A = Test.B;",
+            "  static final Object B = FLAG ? Test.A : \"b\";",
+            "  static final Object C = Test.D;",
+            "  static final Object D = Test.C;",
+            "  static final Object E = Test.A;",
+            "  static void triggerNullnessChecker(Object o) {}",
+            "  void aFirst() {",
+            "    // BUG: Diagnostic contains: (Nullable)",
+            "    triggerNullnessChecker(A);",
+            "    // BUG: Diagnostic contains: (Nullable)",
+            "    triggerNullnessChecker(B);",
+            "    // BUG: Diagnostic contains: (Nullable)",
+            "    triggerNullnessChecker(E);",
+            "  }",
+            "  void bFirst() {",
+            "    // BUG: Diagnostic contains: (Nullable)",
+            "    triggerNullnessChecker(B);",
+            "    // BUG: Diagnostic contains: (Nullable)",
+            "    triggerNullnessChecker(E);",
+            "    // BUG: Diagnostic contains: (Nullable)",
+            "    triggerNullnessChecker(A);",
+            "  }",
+            "  void nullCycle() {",
+            "    // BUG: Diagnostic contains: (Null)",
+            "    triggerNullnessChecker(C);",
+            "    // BUG: Diagnostic contains: (Null)",
+            "    triggerNullnessChecker(D);",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  @Test
+  public void methodOverSizeLimit() {
+    CompilationTestHelper.newInstance(NullnessChecker.class, getClass())
+        .setArgs(ImmutableList.of("-XepDataflowMaxMethodSize:10"))
+        .addSourceLines(
+            "test/Test.java",
+            "package test;",
+            "public class Test {",
+            "  static void triggerNullnessChecker(Object o) {}",
+            "  void small() {",
+            "    // BUG: Diagnostic contains: (Non-null)",
+            "    triggerNullnessChecker(\"\");",
+            "  }",
+            "  void large() {",
+            "    Object o = \"\";",
+            "    o = o.toString() + o.toString();",
+            "    // BUG: Diagnostic contains: (Nullable) [method too large: test.Test.large]",
+            "    triggerNullnessChecker(o);",
+            "  }",
+            "}")
+        .doTest();
+  }
+}
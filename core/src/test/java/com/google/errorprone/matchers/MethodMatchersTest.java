@@ -20,7 +20,10 @@ import static com.google.errorprone.BugPattern.Category.JDK;
 import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
 import static com.google.errorprone.matchers.Description.NO_MATCH;
 import static com.google.errorprone.matchers.method.MethodMatchers.constructor;
+import static com.google.errorprone.matchers.method.MethodMatchers.instanceMethod;
+import static com.google.errorprone.matchers.method.MethodMatchers.staticMethod;
 
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
 import com.google.errorprone.CompilationTestHelper;
 import com.google.errorprone.VisitorState;
@@ -125,4 +128,129 @@ public class MethodMatchersTest {
             "}")
         .doTest();
   }
+
+  /**
+   * A bugchecker that reports every invocation it is called for, to test that candidate method
+   * matchers restrict the invocations it sees.
+   */
+  @BugPattern(
+    name = "FooInvocationReporter",
+    category = JDK,
+    summary = "Reports invocations of Foo.foo",
+    severity = ERROR
+  )
+  public static class FooInvocationReporter extends BugChecker
+      implements BugChecker.MethodInvocationTreeMatcher, BugChecker.MethodInvocationCandidates {
+
+    @Override
+    public ImmutableList<Matcher<ExpressionTree>> candidateMethodMatchers() {
+      return ImmutableList.of(instanceMethod().onExactClass("test.Foo").named("foo"));
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      return describeMatch(tree);
+    }
+  }
+
+  @Test
+  public void candidateMethodMatchers_onlyNamedInvocations() {
+    CompilationTestHelper.newInstance(FooInvocationReporter.class, getClass())
+        .addSourceLines(
+            "test/Foo.java",
+            "package test;",
+            "public class Foo { ",
+            "  public void foo() {}",
+            "  public void bar() {}",
+            "  public void f() {",
+            "    // BUG: Diagnostic contains:",
+            "    foo();",
+            "    bar();",
+            "    toString();",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  /** A bugchecker with no candidate method matchers, which should see every invocation. */
+  @BugPattern(
+    name = "NoCandidatesInvocationReporter",
+    category = JDK,
+    summary = "Reports every invocation",
+    severity = ERROR
+  )
+  public static class NoCandidatesInvocationReporter extends BugChecker
+      implements BugChecker.MethodInvocationTreeMatcher, BugChecker.MethodInvocationCandidates {
+
+    @Override
+    public ImmutableList<Matcher<ExpressionTree>> candidateMethodMatchers() {
+      return ImmutableList.of();
+    }
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      return describeMatch(tree);
+    }
+  }
+
+  @Test
+  public void candidateMethodMatchers_emptyMatchesAllInvocations() {
+    CompilationTestHelper.newInstance(NoCandidatesInvocationReporter.class, getClass())
+        .addSourceLines(
+            "test/Foo.java",
+            "package test;",
+            "public class Foo { ",
+            "  public void foo() {}",
+            "  public void f() {",
+            "    // BUG: Diagnostic contains:",
+            "    foo();",
+            "    // BUG: Diagnostic contains:",
+            "    toString();",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  /** A bugchecker to test matching varargs signatures. */
+  @BugPattern(
+    name = "VarargsSignatureReporter",
+    category = JDK,
+    summary = "Reports invocations of Foo.varargs",
+    severity = ERROR
+  )
+  public static class VarargsSignatureReporter extends BugChecker
+      implements BugChecker.MethodInvocationTreeMatcher {
+
+    static final Matcher<ExpressionTree> ELLIPSIS =
+        staticMethod().onClass("test.Foo").withSignature("<T>varargs(int, T...)");
+
+    static final Matcher<ExpressionTree> ARRAY =
+        staticMethod().onClass("test.Foo").withSignature("<T>varargs(int,T[])");
+
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      if (ELLIPSIS.matches(tree, state) && ARRAY.matches(tree, state)) {
+        return describeMatch(tree);
+      }
+      return NO_MATCH;
+    }
+  }
+
+  @Test
+  public void signatureMatcher_varargs() {
+    CompilationTestHelper.newInstance(VarargsSignatureReporter.class, getClass())
+        .addSourceLines(
+            "test/Foo.java",
+            "package test;",
+            "public class Foo { ",
+            "  public static <T> void varargs(int x, T... xs) {}",
+            "  public static void varargs(String x) {}",
+            "  public void f() {",
+            "    // BUG: Diagnostic contains:",
+            "    varargs(1, \"a\", \"b\");",
+            "    varargs(\"a\");",
+            "  }",
+            "}")
+        .doTest();
+  }
 }
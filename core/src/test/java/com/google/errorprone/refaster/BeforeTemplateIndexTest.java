@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.refaster.BeforeTemplateIndex.Candidate;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.Tree.Kind;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link BeforeTemplateIndex}. */
+@RunWith(JUnit4.class)
+public class BeforeTemplateIndexTest {
+
+  private static UExpression invocation(String name, UExpression... arguments) {
+    return UMethodInvocation.create(
+        UMemberSelect.create(
+            UFreeIdent.create("receiver"), name, UMethodType.create(UPrimitiveType.INT)),
+        arguments);
+  }
+
+  private static RefasterRule<?, ?> rule(String name, UExpression... beforeTemplates) {
+    List<ExpressionTemplate> templates = new ArrayList<>();
+    for (UExpression expression : beforeTemplates) {
+      templates.add(ExpressionTemplate.create(expression, UPrimitiveType.INT));
+    }
+    return RefasterRule.create(name, templates, ImmutableList.<Template<?>>of());
+  }
+
+  /** Returns the candidates for {@code tree} that pass {@link Candidate#mayMatch}. */
+  private static List<String> candidates(BeforeTemplateIndex index, Tree tree) {
+    List<String> result = new ArrayList<>();
+    for (Candidate candidate : index.candidates(tree)) {
+      if (candidate.mayMatch(tree)) {
+        result.add(candidate.rule + ":" + candidate.template);
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void binaryOperator() {
+    UExpression plus = UBinary.create(Kind.PLUS, UFreeIdent.create("a"), UFreeIdent.create("b"));
+    UExpression minus = UBinary.create(Kind.MINUS, UFreeIdent.create("a"), UFreeIdent.create("b"));
+    BeforeTemplateIndex index =
+        BeforeTemplateIndex.create(ImmutableList.of(rule("Plus", plus), rule("Minus", minus)));
+    assertThat(candidates(index, plus)).containsExactly("0:0");
+    assertThat(candidates(index, minus)).containsExactly("1:0");
+    assertThat(candidates(index, ULiteral.intLit(1))).isEmpty();
+  }
+
+  @Test
+  public void methodNameAndArity() {
+    UExpression foo = invocation("foo", UFreeIdent.create("x"));
+    UExpression fooVarargs = invocation("foo", URepeated.create("xs", UFreeIdent.create("x")));
+    UExpression bar = invocation("bar");
+    BeforeTemplateIndex index =
+        BeforeTemplateIndex.create(
+            ImmutableList.of(rule("Foo", foo, fooVarargs), rule("Bar", bar)));
+    assertThat(candidates(index, invocation("foo"))).containsExactly("0:1");
+    assertThat(candidates(index, invocation("foo", ULiteral.intLit(1))))
+        .containsExactly("0:0", "0:1")
+        .inOrder();
+    assertThat(candidates(index, invocation("bar"))).containsExactly("1:0");
+    assertThat(candidates(index, invocation("baz"))).isEmpty();
+  }
+
+  @Test
+  public void unknownShapeMatchesEverything() {
+    UExpression plus = UBinary.create(Kind.PLUS, UFreeIdent.create("a"), UFreeIdent.create("b"));
+    BeforeTemplateIndex index =
+        BeforeTemplateIndex.create(
+            ImmutableList.of(
+                rule("Plus", plus), rule("Any", UFreeIdent.create("a")), rule("Bar", plus)));
+    assertThat(candidates(index, plus)).containsExactly("0:0", "1:0", "2:0").inOrder();
+    assertThat(candidates(index, invocation("foo"))).containsExactly("1:0");
+    assertThat(candidates(index, ULiteral.intLit(1))).containsExactly("1:0");
+  }
+
+  @Test
+  public void literals() {
+    BeforeTemplateIndex index =
+        BeforeTemplateIndex.create(
+            ImmutableList.of(
+                rule("Int", ULiteral.intLit(1)), rule("String", ULiteral.stringLit("1"))));
+    assertThat(candidates(index, ULiteral.longLit(1L))).containsExactly("0:0");
+    assertThat(candidates(index, ULiteral.stringLit("1"))).containsExactly("1:0");
+  }
+}
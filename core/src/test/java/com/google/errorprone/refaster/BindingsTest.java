@@ -16,6 +16,8 @@
 
 package com.google.errorprone.refaster;
 
+import static com.google.common.truth.Truth.assertThat;
+
 import com.google.common.testing.EqualsTester;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -53,4 +55,33 @@ public class BindingsTest {
       .addEqualityGroup(new OtherKey("foo"))
       .testEquals();
   }
+
+  @Test
+  public void testCopiesAreIndependent() {
+    Bindings original = Bindings.create(new Key("foo"), "a", new Key("bar"), "b");
+    Bindings copy = Bindings.create(original);
+    copy.putBinding(new Key("foo"), "c");
+    copy.remove(new Key("bar"));
+    copy.putBinding(new Key("baz"), "d");
+    assertThat(original).containsExactly(new Key("foo"), "a", new Key("bar"), "b");
+    assertThat(copy).containsExactly(new Key("foo"), "c", new Key("baz"), "d");
+  }
+
+  @Test
+  public void testUnmodifiableViewSeesUpdates() {
+    Bindings bindings = Bindings.create(new Key("foo"), "a");
+    Bindings view = bindings.unmodifiable();
+    bindings.putBinding(new Key("bar"), "b");
+    assertThat(view).containsExactly(new Key("foo"), "a", new Key("bar"), "b");
+    assertThat(Bindings.create(view)).isEqualTo(bindings);
+  }
+
+  @Test
+  public void testEntrySetRemove() {
+    Bindings bindings = Bindings.create(new Key("foo"), "a", new Key("bar"), "b");
+    bindings.keySet().remove(new Key("foo"));
+    assertThat(bindings).containsExactly(new Key("bar"), "b");
+    bindings.entrySet().clear();
+    assertThat(bindings).isEmpty();
+  }
 }
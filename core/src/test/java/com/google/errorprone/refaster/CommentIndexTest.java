@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.sun.tools.javac.file.JavacFileManager;
+import com.sun.tools.javac.util.Context;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link CommentIndex}. */
+@RunWith(JUnit4.class)
+public class CommentIndexTest {
+
+  private static final String SOURCE =
+      "class Test { int x = foo(/* a */ 1) + bar(\"/* not a comment */\"); // b\n}";
+
+  private CommentIndex index;
+
+  @Before
+  public void createIndex() {
+    Context context = new Context();
+    JavacFileManager.preRegister(context);
+    index = CommentIndex.create(SOURCE, context);
+  }
+
+  private boolean containsComment(String range) {
+    int start = SOURCE.indexOf(range);
+    return index.containsComment(start, start + range.length());
+  }
+
+  @Test
+  public void commentInRange() {
+    assertThat(containsComment("foo(/* a */ 1)")).isTrue();
+    assertThat(containsComment("/* a */")).isTrue();
+    assertThat(containsComment("; // b\n}")).isTrue();
+  }
+
+  @Test
+  public void noCommentInRange() {
+    assertThat(containsComment("class Test")).isFalse();
+    assertThat(containsComment("foo(/* a")).isFalse();
+    assertThat(containsComment("bar(\"/* not a comment */\")")).isFalse();
+    assertThat(index.containsComment(SOURCE.length(), SOURCE.length())).isFalse();
+  }
+}
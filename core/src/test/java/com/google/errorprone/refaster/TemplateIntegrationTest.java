@@ -24,6 +24,7 @@ import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.errorprone.CodeTransformer;
 import com.google.testing.compile.JavaFileObjects;
@@ -76,10 +77,16 @@ public class TemplateIntegrationTest extends CompilerBasedTest {
   private static final String INPUT_DIR = "com/google/errorprone/refaster/testdata/input";
   private static final String OUTPUT_DIR = "com/google/errorprone/refaster/testdata/output";
 
-  private void runTest(String testName) throws IOException {
-    CodeTransformer transformer = extractRefasterRule(
+  private CodeTransformer extractRefasterRule(String testName) {
+    return extractRefasterRule(
         JavaFileObjects.forResource(String.format("%s/%s.java", TEMPLATE_DIR, testName)));
-    
+  }
+
+  private void runTest(String testName) throws IOException {
+    runTest(extractRefasterRule(testName), testName);
+  }
+
+  private void runTest(CodeTransformer transformer, String testName) throws IOException {
     JavaFileObject input = 
         JavaFileObjects.forResource(String.format("%s/%sExample.java", INPUT_DIR, testName));
     JavaFileObject output = 
@@ -316,4 +323,18 @@ public class TemplateIntegrationTest extends CompilerBasedTest {
   public void asVarargs() throws IOException {
     runTest("AsVarargsTemplate");
   }
+
+  @Test
+  public void ruleBundle() throws IOException {
+    CodeTransformer bundle =
+        RefasterRuleBundle.compose(
+            ImmutableList.of(
+                extractRefasterRule("BinaryTemplate"),
+                extractRefasterRule("IfFallthroughTemplate"),
+                extractRefasterRule("NestedClassTemplate")));
+    assertThat(bundle).isInstanceOf(RefasterRuleBundle.class);
+    runTest(bundle, "BinaryTemplate");
+    runTest(bundle, "IfFallthroughTemplate");
+    runTest(bundle, "NestedClassTemplate");
+  }
 }
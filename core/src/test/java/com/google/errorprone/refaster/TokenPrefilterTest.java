@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.refaster;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.errorprone.refaster.TokenPrefilter.Automaton;
+import com.sun.source.tree.Tree.Kind;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link TokenPrefilter}. */
+@RunWith(JUnit4.class)
+public class TokenPrefilterTest {
+
+  private static UExpression invocation(String name, UExpression... arguments) {
+    return UMethodInvocation.create(
+        UMemberSelect.create(
+            UFreeIdent.create("receiver"), name, UMethodType.create(UPrimitiveType.INT)),
+        arguments);
+  }
+
+  private static ExpressionTemplate template(UExpression expression) {
+    return ExpressionTemplate.create(expression, UPrimitiveType.INT);
+  }
+
+  private static RefasterRule<?, ?> rule(UExpression... beforeTemplates) {
+    ImmutableList.Builder<ExpressionTemplate> templates = ImmutableList.builder();
+    for (UExpression expression : beforeTemplates) {
+      templates.add(template(expression));
+    }
+    return RefasterRule.create("Rule", templates.build(), ImmutableList.<Template<?>>of());
+  }
+
+  @Test
+  public void automatonFindsOverlappingTokens() {
+    Automaton automaton = new Automaton(ImmutableList.of("he", "she", "his", "hers", "xyz"));
+    assertThat(automaton.find("ushers"))
+        .asList()
+        .containsExactly(true, true, false, true, false)
+        .inOrder();
+    assertThat(automaton.find("")).asList().containsExactly(false, false, false, false, false);
+  }
+
+  @Test
+  public void requiredTokens() {
+    UExpression expression =
+        UBinary.create(
+            Kind.PLUS,
+            invocation("foo", ULiteral.stringLit("bar"), ULiteral.stringLit("a\nb")),
+            UAnyOf.create(invocation("baz"), invocation("qux")));
+    assertThat(TokenPrefilter.requiredTokens(template(expression)))
+        .containsExactly("foo", "\"bar\"");
+    assertThat(TokenPrefilter.requiredTokens(template(UFreeIdent.create("x")))).isEmpty();
+  }
+
+  @Test
+  public void mayMatch() {
+    TokenPrefilter prefilter =
+        TokenPrefilter.create(
+            ImmutableList.of(
+                rule(invocation("foo"), invocation("bar")),
+                rule(invocation("baz")),
+                rule(UFreeIdent.create("x"))));
+    assertThat(prefilter.mayMatch("class Test { int x = bar(); }"))
+        .asList()
+        .containsExactly(true, false, true)
+        .inOrder();
+    assertThat(prefilter.mayMatch("class Test {}"))
+        .asList()
+        .containsExactly(false, false, true)
+        .inOrder();
+    assertThat(prefilter.mayMatch("class Test { int x = \\u0062az(); }"))
+        .asList()
+        .containsExactly(true, true, true)
+        .inOrder();
+  }
+}
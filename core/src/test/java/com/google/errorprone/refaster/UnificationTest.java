@@ -16,18 +16,24 @@
 
 package com.google.errorprone.refaster;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.fail;
 
 import com.google.common.collect.ImmutableClassToInstanceMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 import com.sun.source.tree.Tree.Kind;
 import com.sun.tools.javac.code.BoundKind;
 import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCBlock;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
 import com.sun.tools.javac.tree.TreeScanner;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -348,6 +354,64 @@ public class UnificationTest extends CompilerBasedTest {
             "list", "sorted")));
   }
   
+  @Test
+  public void blockTemplateWithAnyOf() {
+    /*
+     * Template:
+     *
+     * x = Refaster.anyOf(y, "foo");
+     * x = y;
+     */
+    BlockTemplate blockTemplate = BlockTemplate.create(
+        ImmutableMap.of(
+            "x", UClassType.create("java.lang.String"),
+            "y", UClassType.create("java.lang.String")),
+        UExpressionStatement.create(
+            UAssign.create(UFreeIdent.create("x"),
+                UAnyOf.create(UFreeIdent.create("y"), ULiteral.stringLit("foo")))),
+        UExpressionStatement.create(
+            UAssign.create(UFreeIdent.create("x"), UFreeIdent.create("y"))));
+    compile(
+        "class AnyOfBlockExample {",
+        "  public void example(String a, String b, String c) {",
+        "    a = \"foo\";",
+        "    a = b;",
+        "    c = b;",
+        "    c = b;",
+        "    a = \"foo\";",
+        "  }",
+        "}");
+    expectMatches(blockTemplate,
+        Match.create(ImmutableMap.of("x", "a", "y", "b")),
+        Match.create(ImmutableMap.of("x", "c", "y", "b")));
+
+    // Matching the same block again finds the same matches, in the same order.
+    final List<JCBlock> blocks = new ArrayList<>();
+    for (JCCompilationUnit unit : compilationUnits) {
+      new TreeScanner() {
+        @Override
+        public void visitMethodDef(JCMethodDecl tree) {
+          blocks.add(tree.getBody());
+        }
+      }.scan(unit);
+    }
+    JCBlock body = Iterables.getLast(blocks);
+    List<Match> first = new ArrayList<>();
+    for (BlockTemplateMatch match : blockTemplate.match(body, context)) {
+      first.add(Match.create(match));
+    }
+    List<Match> second = new ArrayList<>();
+    for (BlockTemplateMatch match : blockTemplate.match(body, context)) {
+      second.add(Match.create(match));
+    }
+    assertThat(first)
+        .containsExactly(
+            Match.create(ImmutableMap.of("x", "a", "y", "b")),
+            Match.create(ImmutableMap.of("x", "c", "y", "b")))
+        .inOrder();
+    assertThat(second).isEqualTo(first);
+  }
+
   @Test
   public void ifBlockTemplate() {
     /*
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.errorprone.util;
+
+import static com.google.errorprone.BugPattern.Category.JDK;
+import static com.google.errorprone.BugPattern.SeverityLevel.ERROR;
+import static com.google.errorprone.matchers.Description.NO_MATCH;
+
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.CompilationTestHelper;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.bugpatterns.BugChecker.MethodInvocationTreeMatcher;
+import com.google.errorprone.matchers.Description;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link InvocationFacts}. */
+@RunWith(JUnit4.class)
+public class InvocationFactsTest {
+
+  /** Reports the facts of each call to {@code f} and of its arguments. */
+  @BugPattern(
+    name = "InvocationFactsChecker",
+    category = JDK,
+    summary = "Reports the invocation facts of calls to f",
+    severity = ERROR
+  )
+  public static class InvocationFactsChecker extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      InvocationFacts facts = state.getInvocationFacts(tree);
+      if (!"f".equals(facts.methodName())) {
+        return NO_MATCH;
+      }
+      StringBuilder message = new StringBuilder();
+      message.append(facts == state.getInvocationFacts(tree) ? "shared" : "not shared");
+      ExpressionTree select = tree.getMethodSelect();
+      message.append(
+          state.getInvocationFacts(select) != state.getInvocationFacts(select)
+              ? ", fresh"
+              : ", not fresh");
+      message.append(", receiver ").append(facts.receiverType());
+      message.append(", arguments ").append(facts.argumentTypes());
+      for (ExpressionTree argument : tree.getArguments()) {
+        InvocationFacts argumentFacts = state.getInvocationFacts(argument);
+        message
+            .append("; ")
+            .append(argumentFacts.symbol())
+            .append(" ")
+            .append(argumentFacts.methodSymbol())
+            .append(" ")
+            .append(argumentFacts.methodName());
+      }
+      return buildDescription(tree).setMessage(message.toString()).build();
+    }
+  }
+
+  @Test
+  public void facts() {
+    CompilationTestHelper.newInstance(InvocationFactsChecker.class, getClass())
+        .addSourceLines(
+            "test/Test.java",
+            "package test;",
+            "public class Test {",
+            "  static void f(Object o, int i) {}",
+            "  void g(String s) {",
+            "    // BUG: Diagnostic contains: shared, fresh, receiver test.Test,"
+                + " arguments [java.lang.String, int]; s null null; null null null",
+            "    f(s, 1);",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  @Test
+  public void receiverTypeOfOtherTree() {
+    CompilationTestHelper.newInstance(ReceiverTypeChecker.class, getClass())
+        .addSourceLines(
+            "test/Test.java",
+            "package test;",
+            "public class Test {",
+            "  static void f(Object o) {}",
+            "  void g() {",
+            "    // BUG: Diagnostic contains: rejected",
+            "    f(1);",
+            "  }",
+            "}")
+        .doTest();
+  }
+
+  /** Reports whether the receiver type of the argument of each call to {@code f} is rejected. */
+  @BugPattern(
+    name = "ReceiverTypeChecker",
+    category = JDK,
+    summary = "Reports whether the receiver type of f's argument is rejected",
+    severity = ERROR
+  )
+  public static class ReceiverTypeChecker extends BugChecker
+      implements MethodInvocationTreeMatcher {
+    @Override
+    public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+      if (!"f".equals(state.getInvocationFacts(tree).methodName())) {
+        return NO_MATCH;
+      }
+      try {
+        state.getInvocationFacts(tree.getArguments().get(0)).receiverType();
+        return buildDescription(tree).setMessage("accepted").build();
+      } catch (IllegalArgumentException e) {
+        return buildDescription(tree).setMessage("rejected").build();
+      }
+    }
+  }
+}
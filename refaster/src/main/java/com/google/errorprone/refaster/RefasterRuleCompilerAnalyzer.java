@@ -15,7 +15,6 @@
 package com.google.errorprone.refaster;
 
 import com.google.errorprone.CodeTransformer;
-import com.google.errorprone.CompositeCodeTransformer;
 import com.sun.source.tree.ClassTree;
 import com.sun.source.util.TaskEvent;
 import com.sun.source.util.TaskEvent.Kind;
@@ -58,7 +57,7 @@ public class RefasterRuleCompilerAnalyzer implements TaskListener {
         RefasterRuleBuilderScanner.extractRules(tree, context);
     try (ObjectOutputStream output =
         new ObjectOutputStream(Files.newOutputStream(destinationPath))) {
-      output.writeObject(CompositeCodeTransformer.compose(rules));
+      output.writeObject(RefasterRuleBundle.compose(rules));
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
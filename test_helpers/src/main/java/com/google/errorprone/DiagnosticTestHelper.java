@@ -26,10 +26,8 @@ import static org.junit.Assert.fail;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
-import com.google.common.io.CharSource;
-import java.io.BufferedReader;
+import com.google.errorprone.util.LineOffsets;
 import java.io.IOException;
-import java.io.LineNumberReader;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -281,25 +279,31 @@ public class DiagnosticTestHelper {
       JavaFileObject source, LookForCheckNameInDiagnostic lookForCheckNameInDiagnostic)
       throws IOException {
     final List<Diagnostic<? extends JavaFileObject>> diagnostics = getDiagnostics();
-    final LineNumberReader reader = new LineNumberReader(
-        CharSource.wrap(source.getCharContent(false)).openStream());
-    do {
-      String line = reader.readLine();
-      if (line == null) {
-        break;
+    LineOffsets lines = LineOffsets.of(source.getCharContent(false));
+    // The lines of this file that have diagnostics, so lines without markers can be checked for
+    // unexpected diagnostics without searching all of them.
+    Set<Long> linesWithDiagnostics = new HashSet<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+      if (diagnostic.getSource() != null && diagnostic.getSource().toUri().equals(source.toUri())) {
+        linesWithDiagnostics.add(diagnostic.getLineNumber());
       }
+    }
+    for (int lineNumber = 1; lineNumber <= lines.lineCount(); lineNumber++) {
+      String line = lines.line(lineNumber).toString();
 
       List<Predicate<? super String>> predicates = null;
       if (line.contains(BUG_MARKER_COMMENT_INLINE)) {
         // Diagnostic must contain all patterns from the bug marker comment.
-        List<String> patterns = extractPatterns(line, reader, BUG_MARKER_COMMENT_INLINE);
+        List<String> patterns = extractPatterns(lines, lineNumber, BUG_MARKER_COMMENT_INLINE);
         predicates = new ArrayList<>(patterns.size());
         for (String pattern : patterns) {
           predicates.add(new SimpleStringContains(pattern));
         }
+        // the diagnostic is expected on the line after the bug marker comment
+        lineNumber += patterns.size();
       } else if (line.contains(BUG_MARKER_COMMENT_LOOKUP)) {
-        int markerLineNumber = reader.getLineNumber();
-        List<String> lookupKeys = extractPatterns(line, reader, BUG_MARKER_COMMENT_LOOKUP);
+        int markerLineNumber = lineNumber;
+        List<String> lookupKeys = extractPatterns(lines, lineNumber, BUG_MARKER_COMMENT_LOOKUP);
         predicates = new ArrayList<>(lookupKeys.size());
         for (String lookupKey : lookupKeys) {
           assertTrue(
@@ -309,10 +313,10 @@ public class DiagnosticTestHelper {
           predicates.add(expectedErrorMsgs.get(lookupKey));
           usedLookupKeys.add(lookupKey);
         }
+        lineNumber += lookupKeys.size();
       }
       
       if (predicates != null) {
-        int lineNumber = reader.getLineNumber();
         for (Predicate<? super String> predicate : predicates) {
           Matcher<? super Iterable<Diagnostic<? extends JavaFileObject>>> patternMatcher =
               hasItem(diagnosticOnLine(source.toUri(), lineNumber, predicate));
@@ -333,16 +337,10 @@ public class DiagnosticTestHelper {
               checkNameMatcher.matches(diagnostics));
         }
 
-      } else {
-        int lineNumber = reader.getLineNumber();
-        Matcher<? super Iterable<Diagnostic<? extends JavaFileObject>>> matcher =
-            hasItem(diagnosticOnLine(source.toUri(), lineNumber));
-        if (matcher.matches(diagnostics)) {
-          fail("Saw unexpected error on line " + lineNumber + ". All errors:\n" + diagnostics);
-        }
+      } else if (linesWithDiagnostics.contains((long) lineNumber)) {
+        fail("Saw unexpected error on line " + lineNumber + ". All errors:\n" + diagnostics);
       }
-    } while (true);
-    reader.close();
+    }
   }
   
   /** Returns the lookup keys that weren't used. */
@@ -353,15 +351,15 @@ public class DiagnosticTestHelper {
   /**
    * Extracts the patterns from a bug marker comment.
    *
-   * @param line The first line of the bug marker comment
-   * @param reader A reader for the test file
+   * @param lines The lines of the test file
+   * @param lineNumber The number of the first line of the bug marker comment
    * @param matchString The bug marker comment match string.
-   * @return A list of patterns that the diagnostic is expected to contain
-   * @throws IOException
+   * @return A list of patterns that the diagnostic is expected to contain, one for each line of
+   *     the bug marker comment
    */
   private static List<String> extractPatterns(
-      String line, BufferedReader reader, String matchString)
-      throws IOException {
+      LineOffsets lines, int lineNumber, String matchString) {
+    String line = lines.line(lineNumber).toString();
     int bugMarkerIndex = line.indexOf(matchString);
     if (bugMarkerIndex < 0) {
       throw new IllegalArgumentException("Line must contain bug marker prefix");
@@ -369,11 +367,11 @@ public class DiagnosticTestHelper {
     List<String> result = new ArrayList<String>();
     String restOfLine = line.substring(bugMarkerIndex + matchString.length()).trim();
     result.add(restOfLine);
-    line = reader.readLine().trim();
+    line = lines.line(++lineNumber).toString().trim();
     while (line.startsWith("//")) {
       restOfLine = line.substring(2).trim();
       result.add(restOfLine);
-      line = reader.readLine().trim();
+      line = lines.line(++lineNumber).toString().trim();
     }
 
     return result;